@@ -0,0 +1,14 @@
+package ar.edu.itba.pod.api.callbacks;
+
+import ar.edu.itba.pod.api.model.FlightEvent;
+
+import java.io.Serializable;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+// Same events as FlightEventCallback, but every event of an operation for this callback comes in a single call
+public interface FlightEventBatchCallback extends Remote, Serializable {
+    // Events in the order they happened
+    void flightEvents(List<FlightEvent> events) throws RemoteException;
+}
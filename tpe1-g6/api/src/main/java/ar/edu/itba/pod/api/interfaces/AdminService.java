@@ -15,5 +15,10 @@ public interface AdminService extends Remote {
     void openRunway(String name) throws RemoteException, RunwayNotFoundException, InvalidRunwayOperationException;
     void closeRunway(String name) throws RemoteException, RunwayNotFoundException, InvalidRunwayOperationException;
     void takeOffOrder() throws RemoteException;
+    // Same as calling takeOffOrder the given amount of times in a row, but trackers only get the last position of each flight.
+    // If rounds is not positive then InvalidRunwayOperationException will be thrown
+    void takeOffOrder(int rounds) throws RemoteException, InvalidRunwayOperationException;
     ReorderStatus reorderRunways() throws RemoteException;
+    // Moves only the flights of this runway to the other open runways, the ones that can't be moved stay where they are
+    ReorderStatus reorderRunway(String name) throws RemoteException, RunwayNotFoundException;
 }
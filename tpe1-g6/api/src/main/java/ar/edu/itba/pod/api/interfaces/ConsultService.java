@@ -1,6 +1,7 @@
 package ar.edu.itba.pod.api.interfaces;
 
 import ar.edu.itba.pod.api.exceptions.QueryNotAllowedException;
+import ar.edu.itba.pod.api.model.DeparturesPage;
 import ar.edu.itba.pod.api.model.Flight;
 
 import java.rmi.Remote;
@@ -11,4 +12,7 @@ public interface ConsultService extends Remote {
     // If both parameters are not null it will throw QueryNotAllowedException
     // (Technically the client should check before calling this, but for completeness we add the exception)
     List<Flight> getDepartures(String runway, String airline) throws RemoteException, QueryNotAllowedException;
+    // Same query but returning at most pageSize flights. The first page is asked with a null cursor and the following ones
+    // with the token of the previous page, it will throw QueryNotAllowedException if the token or page size are not valid
+    DeparturesPage getDepartures(String runway, String airline, String cursor, int pageSize) throws RemoteException, QueryNotAllowedException;
 }
@@ -1,12 +1,17 @@
 package ar.edu.itba.pod.api.interfaces;
 
 import ar.edu.itba.pod.api.exceptions.RunwayNotAssignedException;
+import ar.edu.itba.pod.api.model.Flight;
 import ar.edu.itba.pod.api.model.RunwayType;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 public interface RunwayService extends Remote {
     // If it could not assign a runway to the flight it will throw RunwayNotAssignedException
     void requestRunway(int flightId, String destCode, String airline, RunwayType minType) throws RemoteException, RunwayNotAssignedException;
+    // Assigns the whole list at once, in order. Returns one flight per requested flight (same order), the ones that could
+    // not be assigned have no assigned runway (Flight::isAssigned is false)
+    List<Flight> requestRunways(List<Flight> flights) throws RemoteException;
 }
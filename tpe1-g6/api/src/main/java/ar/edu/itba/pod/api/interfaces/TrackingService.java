@@ -1,5 +1,6 @@
 package ar.edu.itba.pod.api.interfaces;
 
+import ar.edu.itba.pod.api.callbacks.FlightEventBatchCallback;
 import ar.edu.itba.pod.api.callbacks.FlightEventCallback;
 import ar.edu.itba.pod.api.exceptions.FlightNotFoundException;
 import ar.edu.itba.pod.api.exceptions.TrackingNotAllowedException;
@@ -10,4 +11,6 @@ import java.rmi.RemoteException;
 public interface TrackingService extends Remote {
     // If airline does not match the airline for the flight id then TrackingNotAllowedException will be thrown
     void register(int flightId, String airline, FlightEventCallback callback) throws RemoteException, TrackingNotAllowedException, FlightNotFoundException;
+    // Same as above, but the events of each operation are delivered together in one call
+    void registerBatched(int flightId, String airline, FlightEventBatchCallback callback) throws RemoteException, TrackingNotAllowedException, FlightNotFoundException;
 }
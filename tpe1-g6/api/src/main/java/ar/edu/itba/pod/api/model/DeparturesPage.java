@@ -0,0 +1,26 @@
+package ar.edu.itba.pod.api.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public class DeparturesPage implements Serializable {
+    // Serialized compactly, these lists can have thousands of flights
+    private final FlightList flights;
+    // Opaque token to ask for the following page, null if this is the last one
+    private final String next;
+
+    public DeparturesPage(final List<Flight> flights, final String next) {
+        this.flights = new FlightList(flights);
+        this.next = next;
+    }
+
+    public List<Flight> getFlights() {
+        return new ArrayList<>(flights);
+    }
+
+    public Optional<String> getNext() {
+        return Optional.ofNullable(next);
+    }
+}
@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.util.Objects;
 
 public class Flight implements Serializable, Comparable<Flight> {
+    private static final long serialVersionUID = 1L;
     private final int flightId;
     private final String destCode;
     private final String airline;
@@ -22,7 +23,8 @@ public class Flight implements Serializable, Comparable<Flight> {
         this.ahead = 0;
     }
 
-    private Flight(final int flightId, final String destCode, final String airline, final RunwayType minType, final int waitTime, final String assignedRunway, final int ahead) {
+    // Also used by FlightList to rebuild the flights it reads
+    Flight(final int flightId, final String destCode, final String airline, final RunwayType minType, final int waitTime, final String assignedRunway, final int ahead) {
         this(flightId, destCode, airline, minType);
         this.waitTime = waitTime;
         this.assignedRunway = assignedRunway;
@@ -53,6 +55,10 @@ public class Flight implements Serializable, Comparable<Flight> {
         waitTime++;
     }
 
+    public void increaseWaitTime(final int orders) {
+        waitTime += orders;
+    }
+
     public String getAssignedRunway() {
         return assignedRunway;
     }
@@ -79,7 +85,6 @@ public class Flight implements Serializable, Comparable<Flight> {
         ahead = Math.max(ahead - 1, 0);
     }
 
-    // TODO not used
     public Flight copy() {
         return new Flight(flightId, destCode, airline, minType, waitTime, assignedRunway, ahead);
     }
@@ -0,0 +1,49 @@
+package ar.edu.itba.pod.api.model;
+
+import java.io.Serializable;
+
+// An event of a tracked flight, as delivered to a FlightEventBatchCallback
+public class FlightEvent implements Serializable {
+    public enum Type {
+        // The flight was assigned to a runway (First time or during a reorder)
+        ASSIGNED,
+        // A flight in front of it departed, flightsAhead has its new position in the queue
+        UPDATED,
+        // The flight departed (flightsAhead is 0)
+        DEPARTED
+    }
+
+    private final Type type;
+    private final int flightId;
+    private final String destCode;
+    private final String runway;
+    private final int flightsAhead;
+
+    public FlightEvent(final Type type, final int flightId, final String destCode, final String runway, final int flightsAhead) {
+        this.type = type;
+        this.flightId = flightId;
+        this.destCode = destCode;
+        this.runway = runway;
+        this.flightsAhead = flightsAhead;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getFlightId() {
+        return flightId;
+    }
+
+    public String getDestCode() {
+        return destCode;
+    }
+
+    public String getRunway() {
+        return runway;
+    }
+
+    public int getFlightsAhead() {
+        return flightsAhead;
+    }
+}
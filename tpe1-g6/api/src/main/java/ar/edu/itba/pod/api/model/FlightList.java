@@ -0,0 +1,145 @@
+package ar.edu.itba.pod.api.model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+// List of flights with a compact serialized form, for the large lists that go over RMI. Instead of an object per
+// flight it writes, for each one: the difference with the previous id and the wait time and ahead as variable length
+// integers, the minimum type as a byte, and destination, airline and runway as indexes into a dictionary of the strings
+// of this list (each written once, the first time it shows up)
+public class FlightList extends AbstractList<Flight> implements RandomAccess, Serializable {
+    private static final RunwayType[] TYPES = RunwayType.values();
+
+    private transient List<Flight> flights;
+
+    public FlightList(final Collection<Flight> flights) {
+        this.flights = new ArrayList<>(flights);
+    }
+
+    @Override
+    public Flight get(int index) {
+        return flights.get(index);
+    }
+
+    @Override
+    public int size() {
+        return flights.size();
+    }
+
+    @Override
+    public Flight set(int index, Flight flight) {
+        return flights.set(index, flight);
+    }
+
+    @Override
+    public void add(int index, Flight flight) {
+        flights.add(index, flight);
+    }
+
+    @Override
+    public Flight remove(int index) {
+        return flights.remove(index);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        Map<String, Integer> dictionary = new HashMap<>();
+        writeVarInt(out, flights.size());
+        int previousId = 0;
+        for (Flight f : flights) {
+            writeVarInt(out, zigZag(f.getFlightId() - previousId));
+            previousId = f.getFlightId();
+            out.writeByte(f.getMinType().ordinal());
+            writeVarInt(out, f.getWaitTime());
+            writeVarInt(out, f.getAhead());
+            writeString(out, dictionary, f.getDestCode());
+            writeString(out, dictionary, f.getAirline());
+            writeString(out, dictionary, f.getAssignedRunway());
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        List<String> dictionary = new ArrayList<>();
+        int size = readVarInt(in);
+        flights = new ArrayList<>(size);
+        int id = 0;
+        for (int i = 0; i < size; i++) {
+            id += unZigZag(readVarInt(in));
+            RunwayType minType = TYPES[in.readUnsignedByte()];
+            int waitTime = readVarInt(in);
+            int ahead = readVarInt(in);
+            String destCode = readString(in, dictionary);
+            String airline = readString(in, dictionary);
+            String assignedRunway = readString(in, dictionary);
+            flights.add(new Flight(id, destCode, airline, minType, waitTime, assignedRunway, ahead));
+        }
+    }
+
+    // 0 for null, otherwise the index plus one. An index not seen yet is followed by the string
+    private static void writeString(ObjectOutputStream out, Map<String, Integer> dictionary, String s) throws IOException {
+        if (s == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        Integer index = dictionary.get(s);
+        if (index != null) {
+            writeVarInt(out, index + 1);
+            return;
+        }
+        writeVarInt(out, dictionary.size() + 1);
+        dictionary.put(s, dictionary.size());
+        out.writeUTF(s);
+    }
+
+    private static String readString(ObjectInputStream in, List<String> dictionary) throws IOException {
+        int index = readVarInt(in);
+        if (index == 0)
+            return null;
+        if (index <= dictionary.size())
+            return dictionary.get(index - 1);
+        if (index != dictionary.size() + 1)
+            throw new IOException("Invalid string index " + index);
+        String s = in.readUTF();
+        dictionary.add(s);
+        return s;
+    }
+
+    // Seven bits per byte, the highest one set if more bytes follow
+    private static void writeVarInt(ObjectOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ObjectInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Invalid variable length integer");
+    }
+
+    // Small differences of either sign become small positive numbers
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -5,11 +5,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class ReorderStatus implements Serializable {
-    private final List<Flight> failed;
+    // Flights that could not be moved, a reorder of a busy airport can leave thousands
+    private final FlightList failed;
     private final int assigned;
 
     public ReorderStatus(final List<Flight> failed, final int assigned) {
-        this.failed = new ArrayList<>(failed);
+        this.failed = new FlightList(failed);
         this.assigned = assigned;
     }
 
@@ -0,0 +1,54 @@
+package ar.edu.itba.pod.benchmarks;
+
+import ar.edu.itba.pod.api.exceptions.RunwayAlreadyExistsException;
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.api.model.RunwayType;
+import ar.edu.itba.pod.server.servants.Servant;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Servants used by the benchmarks, called in-process (no RMI) so only the server's own cost is measured
+final class Airports {
+    static final String DESTINATION = "EZE";
+    static final String[] AIRLINES = {"AerolineasArgentinas", "LATAM", "FlyBondi", "JetSmart", "Iberia", "AmericanAirlines",
+            "Delta", "United", "AirFrance", "KLM", "Lufthansa", "Emirates", "Qatar", "Avianca", "Copa", "GOL"};
+    private static final RunwayType[] TYPES = RunwayType.values();
+
+    private Airports() {
+    }
+
+    // Runways of every type, flights of type A can use any of them
+    static Servant withRunways(int runways) throws RemoteException, RunwayAlreadyExistsException {
+        Servant servant = new Servant();
+        for (int i = 0; i < runways; i++)
+            servant.addRunway(runway(i), type(i));
+        return servant;
+    }
+
+    static String runway(int i) {
+        return "runway" + i;
+    }
+
+    static RunwayType type(int i) {
+        return TYPES[i % TYPES.length];
+    }
+
+    static Flight flight(int id) {
+        return new Flight(id, DESTINATION, AIRLINES[id % AIRLINES.length], RunwayType.A);
+    }
+
+    // Queues the flights with ids from firstId on, returns the next id
+    static int queue(Servant servant, int firstId, int flights) throws RemoteException {
+        final int chunk = 1000;
+        int id = firstId;
+        while (id < firstId + flights) {
+            List<Flight> batch = new ArrayList<>(chunk);
+            for (int i = 0; i < chunk && id < firstId + flights; i++)
+                batch.add(flight(id++));
+            servant.requestRunways(batch);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,64 @@
+package ar.edu.itba.pod.benchmarks;
+
+import ar.edu.itba.pod.api.exceptions.QueryNotAllowedException;
+import ar.edu.itba.pod.api.model.DeparturesPage;
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.server.servants.Servant;
+import org.openjdk.jmh.annotations.*;
+
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Queries on a departure history of the given size, spread over 8 runways and 16 airlines
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GetDeparturesBenchmark {
+    private static final int RUNWAYS = 8;
+    private static final int PAGE_SIZE = 1000;
+
+    @Param({"1000", "100000"})
+    public int history;
+
+    private Servant servant;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        servant = Airports.withRunways(RUNWAYS);
+        Airports.queue(servant, 0, history);
+        servant.takeOffOrder(history / RUNWAYS + 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        servant.awaitTermination();
+        servant.close();
+    }
+
+    @Benchmark
+    public List<Flight> all() throws RemoteException, QueryNotAllowedException {
+        return servant.getDepartures(null, null);
+    }
+
+    @Benchmark
+    public List<Flight> byAirline() throws RemoteException, QueryNotAllowedException {
+        return servant.getDepartures(null, Airports.AIRLINES[ThreadLocalRandom.current().nextInt(Airports.AIRLINES.length)]);
+    }
+
+    @Benchmark
+    public List<Flight> byRunway() throws RemoteException, QueryNotAllowedException {
+        return servant.getDepartures(Airports.runway(ThreadLocalRandom.current().nextInt(RUNWAYS)), null);
+    }
+
+    // A page from anywhere in the history
+    @Benchmark
+    public DeparturesPage page() throws RemoteException, QueryNotAllowedException {
+        String cursor = Integer.toString(ThreadLocalRandom.current().nextInt(Math.max(1, history - PAGE_SIZE)));
+        return servant.getDepartures(null, null, cursor, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,88 @@
+package ar.edu.itba.pod.benchmarks;
+
+import ar.edu.itba.pod.api.exceptions.QueryNotAllowedException;
+import ar.edu.itba.pod.api.exceptions.RunwayNotAssignedException;
+import ar.edu.itba.pod.api.model.DeparturesPage;
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.server.servants.Servant;
+import org.openjdk.jmh.annotations.*;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Readers (paged departure queries) and writers (runway requests, with a take off order every runways requests so the
+// queues don't grow) on the same airport at the same time, in two mixes: mostly readers and mostly writers
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MixedBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"4", "64"})
+    public int runways;
+
+    @Param({"10000"})
+    public int history;
+
+    private Servant servant;
+    private AtomicInteger ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        servant = Airports.withRunways(runways);
+        ids = new AtomicInteger(Airports.queue(servant, 0, history));
+        servant.takeOffOrder(history / runways + 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        servant.awaitTermination();
+        servant.close();
+    }
+
+    private DeparturesPage read() throws RemoteException, QueryNotAllowedException {
+        String cursor = Integer.toString(ThreadLocalRandom.current().nextInt(history - PAGE_SIZE));
+        return servant.getDepartures(null, null, cursor, PAGE_SIZE);
+    }
+
+    private void write() throws RemoteException, RunwayNotAssignedException {
+        int id = ids.incrementAndGet();
+        Flight f = Airports.flight(id);
+        servant.requestRunway(id, f.getDestCode(), f.getAirline(), f.getMinType());
+        if (id % runways == 0)
+            servant.takeOffOrder();
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(3)
+    public DeparturesPage readHeavyReader() throws RemoteException, QueryNotAllowedException {
+        return read();
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public void readHeavyWriter() throws RemoteException, RunwayNotAssignedException {
+        write();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(1)
+    public DeparturesPage writeHeavyReader() throws RemoteException, QueryNotAllowedException {
+        return read();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(3)
+    public void writeHeavyWriter() throws RemoteException, RunwayNotAssignedException {
+        write();
+    }
+}
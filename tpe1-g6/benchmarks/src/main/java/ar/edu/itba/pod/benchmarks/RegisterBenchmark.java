@@ -0,0 +1,59 @@
+package ar.edu.itba.pod.benchmarks;
+
+import ar.edu.itba.pod.api.callbacks.FlightEventCallback;
+import ar.edu.itba.pod.api.exceptions.FlightNotFoundException;
+import ar.edu.itba.pod.api.exceptions.TrackingNotAllowedException;
+import ar.edu.itba.pod.server.servants.Servant;
+import org.openjdk.jmh.annotations.*;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Registering a new tracker on a random queued flight. Trackers pile up during an iteration, each one starts from scratch
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegisterBenchmark {
+    private static final int RUNWAYS = 16;
+
+    @Param({"1000", "100000"})
+    public int queued;
+
+    private Servant servant;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        servant = Airports.withRunways(RUNWAYS);
+        Airports.queue(servant, 0, queued);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        servant.awaitTermination();
+        servant.close();
+    }
+
+    @Benchmark
+    public void register() throws RemoteException, TrackingNotAllowedException, FlightNotFoundException {
+        int id = ThreadLocalRandom.current().nextInt(queued);
+        servant.register(id, Airports.flight(id).getAirline(), new NoOpCallback());
+    }
+
+    private static class NoOpCallback implements FlightEventCallback {
+        @Override
+        public void flightAssigned(int flightId, String destCode, String runway, int flightsAhead) {
+        }
+
+        @Override
+        public void flightUpdated(int flightId, String destCode, String runway, int flightsAhead) {
+        }
+
+        @Override
+        public void flightDeparted(int flightId, String destCode, String runway) {
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ar.edu.itba.pod.benchmarks;
+
+import ar.edu.itba.pod.api.model.ReorderStatus;
+import ar.edu.itba.pod.server.servants.Servant;
+import org.openjdk.jmh.annotations.*;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+
+// Reordering every queue. All runways are open, so every flight is assigned again and the airport looks the same afterwards
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReorderRunwaysBenchmark {
+    @Param({"4", "64"})
+    public int runways;
+
+    @Param({"10", "1000"})
+    public int queueDepth;
+
+    private Servant servant;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        servant = Airports.withRunways(runways);
+        Airports.queue(servant, 0, runways * queueDepth);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        servant.awaitTermination();
+        servant.close();
+    }
+
+    @Benchmark
+    public ReorderStatus reorderRunways() throws RemoteException {
+        return servant.reorderRunways();
+    }
+
+    // Only the flights of one runway move, queueDepth of them
+    @Benchmark
+    public ReorderStatus reorderRunway(OneRunway airport) throws Exception {
+        return airport.servant.reorderRunway(Airports.runway(0));
+    }
+
+    // A new airport for each call, since the call leaves runway 0 empty. Runway 0 has queueDepth flights and the others
+    // start empty: how long their queues are doesn't change the cost of a move, the best runway comes from the selector
+    @State(Scope.Thread)
+    public static class OneRunway {
+        private Servant servant;
+
+        @Setup(Level.Invocation)
+        public void setUp(ReorderRunwaysBenchmark benchmark) throws Exception {
+            servant = Airports.withRunways(1);
+            Airports.queue(servant, 0, benchmark.queueDepth);
+            for (int i = 1; i < benchmark.runways; i++)
+                servant.addRunway(Airports.runway(i), Airports.type(i));
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws InterruptedException {
+            servant.awaitTermination();
+            servant.close();
+        }
+    }
+}
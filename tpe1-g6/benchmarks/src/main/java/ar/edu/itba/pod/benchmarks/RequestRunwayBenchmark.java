@@ -0,0 +1,56 @@
+package ar.edu.itba.pod.benchmarks;
+
+import ar.edu.itba.pod.api.exceptions.RunwayNotAssignedException;
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.server.servants.Servant;
+import org.openjdk.jmh.annotations.*;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Assigning flights one by one and in batches. Queues keep growing during an iteration, so each one starts from an empty airport
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestRunwayBenchmark {
+    private static final int BATCH = 500;
+
+    @Param({"4", "64"})
+    public int runways;
+
+    private Servant servant;
+    private final AtomicInteger ids = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        servant = Airports.withRunways(runways);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        servant.awaitTermination();
+        servant.close();
+    }
+
+    @Benchmark
+    public void requestRunway() throws RemoteException, RunwayNotAssignedException {
+        Flight f = Airports.flight(ids.incrementAndGet());
+        servant.requestRunway(f.getFlightId(), f.getDestCode(), f.getAirline(), f.getMinType());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<Flight> requestRunways() throws RemoteException {
+        int first = ids.getAndAdd(BATCH);
+        List<Flight> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++)
+            batch.add(Airports.flight(first + i));
+        return servant.requestRunways(batch);
+    }
+}
@@ -0,0 +1,85 @@
+package ar.edu.itba.pod.benchmarks;
+
+import ar.edu.itba.pod.api.callbacks.FlightEventCallback;
+import ar.edu.itba.pod.api.exceptions.FlightNotFoundException;
+import ar.edu.itba.pod.api.exceptions.TrackingNotAllowedException;
+import ar.edu.itba.pod.server.servants.Servant;
+import org.openjdk.jmh.annotations.*;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+
+// A take off order on an airport with queueDepth flights per runway. Every runway gets a new flight after each order,
+// so the queues keep their depth (that refill is part of what is measured, it's one batched request)
+// Tracked flights are spread over the queues and the refills get trackers the same way, so about the same amount of flights
+// is tracked all the time (registering them is measured too)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TakeOffOrderBenchmark {
+    @Param({"4", "64"})
+    public int runways;
+
+    @Param({"10", "1000"})
+    public int queueDepth;
+
+    // Flights with a tracker at any time (at most every queued flight): one of each runways * queueDepth / tracked ids
+    @Param({"0", "100"})
+    public int tracked;
+
+    private Servant servant;
+    private int nextId;
+    private int stride;
+    private FlightEventCallback callback;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        servant = Airports.withRunways(runways);
+        nextId = Airports.queue(servant, 0, runways * queueDepth);
+        stride = tracked == 0 ? 0 : Math.max(1, runways * queueDepth / tracked);
+        callback = new FlightEventCallback() {
+            @Override
+            public void flightAssigned(int flightId, String destCode, String runway, int flightsAhead) {
+            }
+
+            @Override
+            public void flightUpdated(int flightId, String destCode, String runway, int flightsAhead) {
+            }
+
+            @Override
+            public void flightDeparted(int flightId, String destCode, String runway) {
+            }
+        };
+        track(0, nextId);
+    }
+
+    // Registers a tracker on every flight of the range that is one of the tracked ids
+    private void track(int fromId, int toId) throws RemoteException {
+        if (stride == 0)
+            return;
+        for (int id = fromId + Math.floorMod(-fromId, stride); id < toId; id += stride) {
+            try {
+                servant.register(id, Airports.flight(id).getAirline(), callback);
+            } catch (TrackingNotAllowedException | FlightNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        servant.awaitTermination();
+        servant.close();
+    }
+
+    @Benchmark
+    public void takeOffOrder() throws RemoteException {
+        servant.takeOffOrder();
+        int firstId = nextId;
+        nextId = Airports.queue(servant, nextId, runways);
+        track(firstId, nextId);
+    }
+}
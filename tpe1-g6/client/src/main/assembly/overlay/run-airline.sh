@@ -1,4 +1,4 @@
 #!/bin/bash
 
-#usage ./run-airline -DserverAddress=xx.xx.xx.xx:yyyy -Dairline=airlineName -DflightCode=flightCode
+#usage ./run-airline -DserverAddress=xx.xx.xx.xx:yyyy -Dairline=airlineName -DflightCode=flightCode [ -Dbatched=true ]
 java  "$@" -cp 'lib/jars/*' "ar.edu.itba.pod.client.FlightTrackingClient"
\ No newline at end of file
@@ -0,0 +1,4 @@
+#!/bin/bash
+
+#usage ./run-load -DserverAddress=xx.xx.xx.xx:yyyy [ -Dduration=seconds ] [ -Doperations=count ] [ -Drequesters=threads ] [ -Dreaders=threads ] [ -DtakeOffs=threads ] [ -Dsubscribers=threads ] [ -Drunways=count ] [ -Dbatch=flightsPerCall ] [ -DpageSize=flightsPerCall ] [ -DtakeOffIntervalMillis=millis ] [ -DmaxQueued=flights ]
+java  "$@" -cp 'lib/jars/*' "ar.edu.itba.pod.client.LoadGeneratorClient"
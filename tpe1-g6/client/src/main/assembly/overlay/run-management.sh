@@ -1,4 +1,4 @@
 #!/bin/bash
 
-#usage ./run-management -DserverAddress=xx.xx.xx.xx:yyyy -Daction=actionName [ -Drunway=runwayName | -Dcategory=minCategory ]
+#usage ./run-management -DserverAddress=xx.xx.xx.xx:yyyy -Daction=actionName [ -Drunway=runwayName | -Dcategory=minCategory ] [ -Drounds=rounds ]
 java  "$@" -cp 'lib/jars/*' "ar.edu.itba.pod.client.AdminClient"
\ No newline at end of file
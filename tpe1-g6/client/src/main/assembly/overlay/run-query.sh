@@ -1,4 +1,4 @@
 #!/bin/bash
 
-#usage ./run-query -DserverAddress=xx.xx.xx.xx:yyyy [ -Dairline=airlineName | -Drunway=runwayName ] -DoutPath=fileName
+#usage ./run-query -DserverAddress=xx.xx.xx.xx:yyyy [ -Dairline=airlineName | -Drunway=runwayName ] -DoutPath=fileName [ -DpageSize=flightsPerCall ]
 java "$@" -cp 'lib/jars/*' "ar.edu.itba.pod.client.RunQueryClient"
\ No newline at end of file
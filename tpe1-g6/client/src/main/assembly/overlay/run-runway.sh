@@ -1,4 +1,4 @@
 #!/bin/bash
 
-#usage ./run-runway -DserverAddress=xx.xx.xx.xx:yyyy -DinPath=fileName
+#usage ./run-runway -DserverAddress=xx.xx.xx.xx:yyyy -DinPath=fileName [ -DchunkSize=flightsPerCall ] [ -Dsenders=threads ]
 java "$@" -cp 'lib/jars/*' "ar.edu.itba.pod.client.RunRunwayClient"
\ No newline at end of file
@@ -25,6 +25,8 @@ public class AdminClient {
             ActionType action = ActionType.getEnumOf(System.getProperty("action")).orElseThrow(() -> new IllegalArgumentException("Bad action."));
             String runwayName = System.getProperty("runway");
             RunwayType category = System.getProperty("category")==null?null:(RunwayType.valueOf(System.getProperty("category")));
+            // Several rounds go in a single call
+            Integer rounds = System.getProperty("rounds")==null?null:Integer.parseInt(System.getProperty("rounds"));
 
             if (action == ActionType.ADD) {
                 if (category == null || runwayName == null) {
@@ -34,6 +36,10 @@ public class AdminClient {
                 if (runwayName == null) {
                     throw new IllegalArgumentException("'runway' argument needed.");
                 }
+            } else if (action == ActionType.TAKEOFF) {
+                if (rounds != null && rounds <= 0) {
+                    throw new IllegalArgumentException("'rounds' must be positive.");
+                }
             }
 
             logger.info("tpe1-g6 Client Starting ...");
@@ -65,11 +71,15 @@ public class AdminClient {
                     logger.info("Runway " + runwayName + " is "+ (isOpen?"open.":"closed.") );
                     break;
                 case TAKEOFF:
-                    adminService.takeOffOrder();
+                    if (rounds == null)
+                        adminService.takeOffOrder();
+                    else
+                        adminService.takeOffOrder(rounds);
                     logger.info("OK.");
                     break;
                 case REORDER:
-                    ReorderStatus  rStatus = adminService.reorderRunways();
+                    // With a runway only its flights are moved
+                    ReorderStatus  rStatus = runwayName == null ? adminService.reorderRunways() : adminService.reorderRunway(runwayName);
                     rStatus.getFailed().stream().forEach(f ->  {logger.info("Cannot assign Flight " + f.getFlightId() + ".");});
                     logger.info( rStatus.getAssigned() + " flights assigned.");
                     break;
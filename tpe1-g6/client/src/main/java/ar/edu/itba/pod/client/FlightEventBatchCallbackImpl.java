@@ -0,0 +1,35 @@
+package ar.edu.itba.pod.client;
+
+import ar.edu.itba.pod.api.callbacks.FlightEventBatchCallback;
+import ar.edu.itba.pod.api.callbacks.FlightEventCallback;
+import ar.edu.itba.pod.api.model.FlightEvent;
+
+import java.rmi.RemoteException;
+import java.util.List;
+
+// Hands each event of a batch to a per event callback, in order
+public class FlightEventBatchCallbackImpl implements FlightEventBatchCallback {
+
+    private final FlightEventCallback callback;
+
+    public FlightEventBatchCallbackImpl(FlightEventCallback callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public void flightEvents(List<FlightEvent> events) throws RemoteException {
+        for (FlightEvent e : events) {
+            switch (e.getType()) {
+                case ASSIGNED:
+                    callback.flightAssigned(e.getFlightId(), e.getDestCode(), e.getRunway(), e.getFlightsAhead());
+                    break;
+                case UPDATED:
+                    callback.flightUpdated(e.getFlightId(), e.getDestCode(), e.getRunway(), e.getFlightsAhead());
+                    break;
+                case DEPARTED:
+                    callback.flightDeparted(e.getFlightId(), e.getDestCode(), e.getRunway());
+                    break;
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package ar.edu.itba.pod.client;
 
+import ar.edu.itba.pod.api.callbacks.FlightEventBatchCallback;
 import ar.edu.itba.pod.api.callbacks.FlightEventCallback;
 import ar.edu.itba.pod.api.interfaces.TrackingService;
 import org.slf4j.Logger;
@@ -14,6 +15,7 @@ import java.util.Optional;
 public class FlightTrackingClient {
 
     private static Logger logger = LoggerFactory.getLogger(FlightTrackingClient.class);
+    private static final String DEFAULT_BATCHED = "false";
 
     public static void main(final String[] args){
 
@@ -22,6 +24,7 @@ public class FlightTrackingClient {
             String airlineName = Optional.ofNullable(System.getProperty("airline")).orElseThrow(() -> new IllegalArgumentException("'airline' argument needed."));
             String fc = Optional.ofNullable(System.getProperty("flightCode")).orElseThrow(() -> new IllegalArgumentException("'flightCode' argument needed."));
             int flightCode = Integer.parseInt(fc);
+            boolean batched = Boolean.parseBoolean(Optional.ofNullable(System.getProperty("batched")).orElse(DEFAULT_BATCHED));
 
             logger.info("tpe1-g6 Flight Tracking Client Starting ...");
 
@@ -34,11 +37,17 @@ public class FlightTrackingClient {
             final TrackingService trackingService = (TrackingService) registry.lookup("tracking");
             final FlightEventCallback flightEventCallback = new FlightEventCallbackImpl();
 
-            UnicastRemoteObject.exportObject(flightEventCallback, 0);
-
             logger.info("client Started ...");
 
-            trackingService.register(flightCode, airlineName, flightEventCallback);
+            if (batched) {
+                // Same output, but the server sends the events of each operation in one call
+                final FlightEventBatchCallback batchCallback = new FlightEventBatchCallbackImpl(flightEventCallback);
+                UnicastRemoteObject.exportObject(batchCallback, 0);
+                trackingService.registerBatched(flightCode, airlineName, batchCallback);
+            } else {
+                UnicastRemoteObject.exportObject(flightEventCallback, 0);
+                trackingService.register(flightCode, airlineName, flightEventCallback);
+            }
 
         }
         catch (Exception e){
@@ -0,0 +1,296 @@
+package ar.edu.itba.pod.client;
+
+import ar.edu.itba.pod.api.callbacks.FlightEventCallback;
+import ar.edu.itba.pod.api.exceptions.RunwayAlreadyExistsException;
+import ar.edu.itba.pod.api.interfaces.AdminService;
+import ar.edu.itba.pod.api.interfaces.ConsultService;
+import ar.edu.itba.pod.api.interfaces.RunwayService;
+import ar.edu.itba.pod.api.interfaces.TrackingService;
+import ar.edu.itba.pod.api.metrics.LatencyHistogram;
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.api.model.FlightList;
+import ar.edu.itba.pod.api.model.RunwayType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Puts load on a running server to measure it: runway requesters, departure readers, take off drivers and tracking
+// subscribers run at the same time until the duration ends (or the amount of operations is reached), then reports the
+// throughput and latency percentiles of each operation, and how long tracking events took to arrive.
+// Requests are paced by the take offs: every flight requested takes a permit, and each take off order gives back one
+// per load runway (never more than were taken, so idle take offs don't pile up permits), so the queues stay around
+// maxQueued flights and tracked flights do depart
+public class LoadGeneratorClient {
+    private static Logger logger = LoggerFactory.getLogger(LoadGeneratorClient.class);
+    private static final String DEFAULT_DURATION = "30";
+    private static final String DEFAULT_REQUESTERS = "4";
+    private static final String DEFAULT_READERS = "2";
+    private static final String DEFAULT_TAKE_OFFS = "1";
+    private static final String DEFAULT_SUBSCRIBERS = "2";
+    private static final String DEFAULT_RUNWAYS = "8";
+    private static final String DEFAULT_BATCH = "1";
+    private static final String DEFAULT_PAGE_SIZE = "100";
+    private static final String DEFAULT_TAKE_OFF_INTERVAL = "100";
+    private static final String DEFAULT_QUEUED_PER_RUNWAY = "50";
+    private static final String AIRLINE = "LoadGenerator";
+    private static final String DESTINATION = "EZE";
+
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+    // Notification lag: from the take off order that moved a tracked flight to the event arriving here. Only measured
+    // with a single take off thread, otherwise there is no telling which order moved the flight
+    private final LatencyHistogram lag = new LatencyHistogram();
+    private final boolean measureLag;
+    private volatile long lastTakeOff = System.nanoTime();
+    // Flights that can still be requested before the queues are full
+    private final Semaphore permits;
+    private final int maxQueued;
+    private final int runways;
+    private final AtomicInteger ids = new AtomicInteger(ThreadLocalRandom.current().nextInt(1_000_000, 1_000_000_000));
+    private final AtomicLong operations = new AtomicLong();
+    private final long maxOperations;
+    private final long start;
+    private final long deadline;
+    private final AtomicLong failures = new AtomicLong();
+
+    private LoadGeneratorClient(long durationSeconds, long maxOperations, int maxQueued, int runways, boolean measureLag) {
+        this.start = System.nanoTime();
+        this.deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.maxOperations = maxOperations;
+        this.permits = new Semaphore(maxQueued);
+        this.maxQueued = maxQueued;
+        this.runways = runways;
+        this.measureLag = measureLag;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String serverAddress = Optional.ofNullable(System.getProperty("serverAddress")).orElseThrow(() -> new IllegalArgumentException("'serverAddress' argument needed."));
+        long duration = Long.parseLong(Optional.ofNullable(System.getProperty("duration")).orElse(DEFAULT_DURATION));
+        long maxOperations = Long.parseLong(Optional.ofNullable(System.getProperty("operations")).orElse(Long.toString(Long.MAX_VALUE)));
+        int requesters = Integer.parseInt(Optional.ofNullable(System.getProperty("requesters")).orElse(DEFAULT_REQUESTERS));
+        int readers = Integer.parseInt(Optional.ofNullable(System.getProperty("readers")).orElse(DEFAULT_READERS));
+        int takeOffs = Integer.parseInt(Optional.ofNullable(System.getProperty("takeOffs")).orElse(DEFAULT_TAKE_OFFS));
+        int subscribers = Integer.parseInt(Optional.ofNullable(System.getProperty("subscribers")).orElse(DEFAULT_SUBSCRIBERS));
+        int runways = Integer.parseInt(Optional.ofNullable(System.getProperty("runways")).orElse(DEFAULT_RUNWAYS));
+        int batch = Integer.parseInt(Optional.ofNullable(System.getProperty("batch")).orElse(DEFAULT_BATCH));
+        int pageSize = Integer.parseInt(Optional.ofNullable(System.getProperty("pageSize")).orElse(DEFAULT_PAGE_SIZE));
+        long takeOffInterval = Long.parseLong(Optional.ofNullable(System.getProperty("takeOffIntervalMillis")).orElse(DEFAULT_TAKE_OFF_INTERVAL));
+        int maxQueued = Integer.parseInt(Optional.ofNullable(System.getProperty("maxQueued"))
+                .orElse(Integer.toString(runways * Integer.parseInt(DEFAULT_QUEUED_PER_RUNWAY))));
+        if (duration <= 0 || maxOperations <= 0 || batch <= 0 || pageSize <= 0 || runways <= 0 || maxQueued < batch)
+            throw new IllegalArgumentException("'duration', 'operations', 'batch', 'pageSize' and 'runways' must be positive, and 'maxQueued' at least 'batch'.");
+
+        logger.info("tpe1-g6 Load Generator Client Starting ...");
+
+        String[] address = serverAddress.split(":");
+        final AdminService adminService;
+        final RunwayService runwayService;
+        final ConsultService consultService;
+        final TrackingService trackingService;
+        try {
+            final Registry registry = LocateRegistry.getRegistry(address[0], Integer.parseInt(address[1]));
+            adminService = (AdminService) registry.lookup("admin");
+            runwayService = (RunwayService) registry.lookup("runway");
+            consultService = (ConsultService) registry.lookup("consult");
+            trackingService = (TrackingService) registry.lookup("tracking");
+            for (int i = 0; i < runways; i++) {
+                try {
+                    adminService.addRunway("load" + i, RunwayType.F);
+                } catch (RunwayAlreadyExistsException ignored) {
+                    // From a previous run
+                }
+            }
+        } catch (Exception e) {
+            logger.error(e.toString());
+            return;
+        }
+
+        final LoadGeneratorClient load = new LoadGeneratorClient(duration, maxOperations, maxQueued, runways, takeOffs == 1);
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < requesters; i++)
+            threads.add(load.worker("requester-" + i, batch == 1 ? "requestRunway" : "requestRunways", () -> load.queueRoom(batch), () -> {
+                if (batch == 1) {
+                    runwayService.requestRunway(load.ids.incrementAndGet(), DESTINATION, AIRLINE, RunwayType.A);
+                } else {
+                    List<Flight> flights = new ArrayList<>(batch);
+                    for (int j = 0; j < batch; j++)
+                        flights.add(new Flight(load.ids.incrementAndGet(), DESTINATION, AIRLINE, RunwayType.A));
+                    runwayService.requestRunways(new FlightList(flights));
+                }
+            }));
+        for (int i = 0; i < readers; i++)
+            threads.add(load.worker("reader-" + i, "getDepartures", () -> true, () -> consultService.getDepartures(null, AIRLINE, null, pageSize)));
+        for (int i = 0; i < takeOffs; i++)
+            threads.add(load.worker("takeOff-" + i, "takeOffOrder", () -> {
+                Thread.sleep(takeOffInterval);
+                return true;
+            }, () -> {
+                load.lastTakeOff = System.nanoTime();
+                adminService.takeOffOrder();
+                load.freeRoom(load.runways);
+            }));
+        for (int i = 0; i < subscribers; i++)
+            threads.add(load.subscriber("subscriber-" + i, runwayService, trackingService));
+
+        threads.forEach(Thread::start);
+        for (Thread t : threads)
+            t.join();
+        load.report();
+    }
+
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    // Runs before each operation, out of its measure. False to skip the operation this time
+    private interface Pace {
+        boolean ready() throws InterruptedException;
+    }
+
+    private boolean running() {
+        return System.nanoTime() < deadline && operations.get() < maxOperations;
+    }
+
+    private synchronized LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    // Waits a while for room in the queues for that many flights
+    private boolean queueRoom(int flights) throws InterruptedException {
+        return permits.tryAcquire(flights, 100, TimeUnit.MILLISECONDS);
+    }
+
+    // Gives back up to that many permits, capped at the ones taken
+    private synchronized void freeRoom(int flights) {
+        permits.release(Math.max(0, Math.min(flights, maxQueued - permits.availablePermits())));
+    }
+
+    private Thread worker(String name, String operation, Pace pace, Operation op) {
+        final LatencyHistogram histogram = histogram(operation);
+        return new Thread(() -> {
+            while (running()) {
+                try {
+                    if (!pace.ready())
+                        continue;
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long start = System.nanoTime();
+                try {
+                    op.run();
+                    histogram.recordNanos(System.nanoTime() - start);
+                    operations.incrementAndGet();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    logger.warn(operation + " failed: " + e);
+                }
+            }
+        }, name);
+    }
+
+    // Requests a flight and tracks it until it departs, then starts again with a new one
+    private Thread subscriber(String name, RunwayService runwayService, TrackingService trackingService) {
+        final LatencyHistogram histogram = histogram("register");
+        return new Thread(() -> {
+            final BlockingQueue<Integer> departed = new LinkedBlockingQueue<>();
+            final FlightEventCallback callback = new FlightEventCallback() {
+                @Override
+                public void flightAssigned(int flightId, String destCode, String runway, int flightsAhead) {
+                }
+
+                @Override
+                public void flightUpdated(int flightId, String destCode, String runway, int flightsAhead) {
+                    recordLag();
+                }
+
+                @Override
+                public void flightDeparted(int flightId, String destCode, String runway) {
+                    recordLag();
+                    departed.add(flightId);
+                }
+            };
+            try {
+                UnicastRemoteObject.exportObject(callback, 0);
+            } catch (RemoteException e) {
+                failures.incrementAndGet();
+                logger.error(name + " stopped: " + e);
+                return;
+            }
+            try {
+                while (running()) {
+                    if (!queueRoom(1))
+                        continue;
+                    int flightId = ids.incrementAndGet();
+                    try {
+                        runwayService.requestRunway(flightId, DESTINATION, AIRLINE, RunwayType.A);
+                    } catch (Exception e) {
+                        // Nothing was queued, so its room is free again
+                        freeRoom(1);
+                        failures.incrementAndGet();
+                        logger.warn("requestRunway failed: " + e);
+                        continue;
+                    }
+                    long start = System.nanoTime();
+                    try {
+                        trackingService.register(flightId, AIRLINE, callback);
+                    } catch (Exception e) {
+                        // Expected now and then: a take off made the flight depart before it was registered
+                        failures.incrementAndGet();
+                        logger.warn("register failed: " + e);
+                        continue;
+                    }
+                    histogram.recordNanos(System.nanoTime() - start);
+                    operations.incrementAndGet();
+                    Integer done = null;
+                    while (running() && done == null)
+                        done = departed.poll(100, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException ignored) {
+            } finally {
+                try {
+                    UnicastRemoteObject.unexportObject(callback, true);
+                } catch (NoSuchObjectException ignored) {
+                }
+            }
+        }, name);
+    }
+
+    private void recordLag() {
+        if (measureLag)
+            lag.recordNanos(System.nanoTime() - lastTakeOff);
+    }
+
+    private void report() {
+        logger.info(String.format("%-16s %10s %10s %10s %10s %10s", "operation", "ops", "ops/s", "p50 us", "p99 us", "p999 us"));
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        histograms.forEach((name, h) -> logger.info(line(name, h, elapsedMillis)));
+        if (measureLag)
+            logger.info(line("notification lag", lag, elapsedMillis));
+        else
+            logger.info("Notification lag is only measured with a single take off thread.");
+        logger.info(failures.get() + " failed operations.");
+    }
+
+    private static String line(String name, LatencyHistogram h, long elapsedMillis) {
+        return String.format("%-16s %10d %10d %10d %10d %10d", name, h.getCount(), h.getCount() * 1000 / elapsedMillis,
+                h.getPercentile(0.5), h.getPercentile(0.99), h.getPercentile(0.999));
+    }
+}
@@ -2,6 +2,7 @@ package ar.edu.itba.pod.client;
 
 import ar.edu.itba.pod.api.exceptions.QueryNotAllowedException;
 import ar.edu.itba.pod.api.interfaces.ConsultService;
+import ar.edu.itba.pod.api.model.DeparturesPage;
 import ar.edu.itba.pod.api.model.Flight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,7 +10,6 @@ import org.slf4j.LoggerFactory;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.rmi.Naming;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.util.List;
@@ -17,6 +17,7 @@ import java.util.Optional;
 
 public class RunQueryClient {
     private static Logger logger = LoggerFactory.getLogger(RunQueryClient.class);
+    private static final String DEFAULT_PAGE_SIZE = "1000";
 
     public static void main(String[] args) {
         // Params
@@ -26,6 +27,9 @@ public class RunQueryClient {
         // Nullable params
         String airlineName = System.getProperty("airline");
         String runwayName = System.getProperty("runway");
+        int pageSize = Integer.parseInt(Optional.ofNullable(System.getProperty("pageSize")).orElse(DEFAULT_PAGE_SIZE));
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("'pageSize' must be positive.");
 
         logger.info("tpe1-g6 Run Query Client Starting ...");
 
@@ -50,14 +54,9 @@ public class RunQueryClient {
             return;
         }
 
-        List<Flight> flightList;
         try {
-            flightList = consultService.getDepartures(runwayName, airlineName);
-
-            // only write to file if list is not empty
-            if(!flightList.isEmpty())
-                writeFlightFile(fileName, flightList);
-            else
+            // only write to file if there is at least one flight
+            if (!writeFlightFile(fileName, consultService, runwayName, airlineName, pageSize))
                 logger.info("No flights matched query conditions");
         } catch (QueryNotAllowedException qnae) {
             // should not fall here but specified for completeness
@@ -68,24 +67,37 @@ public class RunQueryClient {
 
     }
 
-    private static void writeFlightFile(String fileName, List<Flight> flightList) throws IOException {
-
-        BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
-
-        //header
-        writer.write("TakeOffOrders;RunwayName;FlightCode;DestinyAirport;AirlineName\n");
-
-        for (Flight flight : flightList) {
-            writer.append(
-                    String.format("%d;%s;%d;%s;%s\n",
-                            flight.getWaitTime(),
-                            flight.getAssignedRunway(),
-                            flight.getFlightId(),
-                            flight.getDestCode(),
-                            flight.getAirline()
-                    ));
+    // Pages are written as they arrive, so only one page is in memory at a time. Returns false if there were no flights
+    private static boolean writeFlightFile(String fileName, ConsultService consultService, String runwayName, String airlineName, int pageSize)
+            throws IOException, QueryNotAllowedException {
+        BufferedWriter writer = null;
+        try {
+            Optional<String> cursor = Optional.empty();
+            do {
+                DeparturesPage page = consultService.getDepartures(runwayName, airlineName, cursor.orElse(null), pageSize);
+                List<Flight> flightList = page.getFlights();
+                if (writer == null && !flightList.isEmpty()) {
+                    writer = new BufferedWriter(new FileWriter(fileName));
+                    //header
+                    writer.write("TakeOffOrders;RunwayName;FlightCode;DestinyAirport;AirlineName\n");
+                }
+
+                for (Flight flight : flightList) {
+                    writer.append(
+                            String.format("%d;%s;%d;%s;%s\n",
+                                    flight.getWaitTime(),
+                                    flight.getAssignedRunway(),
+                                    flight.getFlightId(),
+                                    flight.getDestCode(),
+                                    flight.getAirline()
+                            ));
+                }
+                cursor = page.getNext();
+            } while (cursor.isPresent());
+        } finally {
+            if (writer != null)
+                writer.close();
         }
-
-        writer.close();
+        return writer != null;
     }
 }
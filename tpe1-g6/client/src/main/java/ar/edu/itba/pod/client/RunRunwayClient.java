@@ -1,6 +1,5 @@
 package ar.edu.itba.pod.client;
 
-import ar.edu.itba.pod.api.exceptions.RunwayNotAssignedException;
 import ar.edu.itba.pod.api.interfaces.RunwayService;
 import ar.edu.itba.pod.api.model.RunwayType;
 import org.slf4j.Logger;
@@ -11,24 +10,25 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.rmi.Naming;
-import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
-import java.util.List;
-import java.util.ArrayList;
 import java.util.Optional;
 
 public class RunRunwayClient {
     private static Logger logger = LoggerFactory.getLogger(RunRunwayClient.class);
+    private static final String DEFAULT_CHUNK_SIZE = "500";
+    private static final String DEFAULT_SENDERS = "4";
 
     public static void main(String[] args) {
 
         // Params
         String fileName = Optional.ofNullable(System.getProperty("inPath")).orElseThrow(IllegalArgumentException::new);
         String serverAddress = Optional.ofNullable(System.getProperty("serverAddress")).orElseThrow(IllegalArgumentException::new);
+        int chunkSize = Integer.parseInt(Optional.ofNullable(System.getProperty("chunkSize")).orElse(DEFAULT_CHUNK_SIZE));
+        int senders = Integer.parseInt(Optional.ofNullable(System.getProperty("senders")).orElse(DEFAULT_SENDERS));
+        if (chunkSize <= 0 || senders <= 0)
+            throw new IllegalArgumentException("'chunkSize' and 'senders' must be positive.");
 
         logger.info("tpe1-g6 Run Runway Client Starting ...");
 
@@ -46,56 +46,25 @@ public class RunRunwayClient {
             return;
         }
 
-        // Local Variables
-        int assignedFlights = 0;
-
-
-        List<Flight> flightList = readFlightFile(fileName);
-
-        for (Flight flight : flightList) {
-            try {
-                runwayService.requestRunway(
-                        flight.getFlightId(),
-                        flight.getDestCode(),
-                        flight.getAirline(),
-                        flight.getMinType()
-                );
-                assignedFlights++;
-            } catch (RunwayNotAssignedException rnae) {
-                // print error
-                logger.info(String.format("Cannot assign Flight %d.", flight.getFlightId()));
-            } catch (RemoteException re) {
-                logger.error(re.toString());
-            }
-        }
-        logger.info(String.format("%d flights assigned.", assignedFlights));
-    }
-
-    private static List<Flight> readFlightFile(String fileName) {
-        List<Flight> flightList = new ArrayList<>();
-        Path pathToFile = Paths.get(fileName);
-
-        try {
-            BufferedReader br = Files.newBufferedReader(pathToFile, StandardCharsets.UTF_8);
-
-            // to check first line and skip because it is header
-            String line = br.readLine();
-
-            while ((line= br.readLine()) != null) {
-                Flight flight = stringToFlight(line);
-                flightList.add(flight);
-            }
-
-
-        } catch (IOException ioe) {
-            // Do sth
-            logger.error(ioe.toString());
-        } catch (RuntimeException re) {
-            // other types of exception
-            logger.error(re.toString());
+        // Flights are read lazily and sent in chunks by several threads at once
+        RunwayRequestPipeline pipeline = new RunwayRequestPipeline(runwayService, chunkSize, senders, senders * 2);
+        boolean failed = true;
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+            int assignedFlights = pipeline.run(br, RunRunwayClient::stringToFlight);
+            logger.info(String.format("%d flights assigned.", assignedFlights));
+            int failedFlights = pipeline.getFailedFlights();
+            if (failedFlights > 0)
+                logger.error(String.format("%d flights could not be sent.", failedFlights));
+            failed = failedFlights > 0;
+        } catch (IOException | RuntimeException e) {
+            logger.error(e.toString());
+        } catch (InterruptedException ie) {
+            logger.error(ie.toString());
+            Thread.currentThread().interrupt();
         }
-
-        return flightList;
+        // So scripts can tell that some flights were not requested
+        if (failed)
+            System.exit(1);
     }
 
     private static Flight stringToFlight(String line) {
@@ -0,0 +1,215 @@
+package ar.edu.itba.pod.client;
+
+import ar.edu.itba.pod.api.interfaces.RunwayService;
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.api.model.FlightList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+// Reads the flights lazily in chunks and keeps several chunks in flight at once using a pool of sender threads.
+// Results are reported in the same order as the file, and at most (queueCapacity + senders) chunks are held in memory.
+// The flights of a chunk whose call failed are reported as failed. A sender that dies from an unexpected exception stops
+// the whole pipeline, and run throws it
+public class RunwayRequestPipeline {
+    private static Logger logger = LoggerFactory.getLogger(RunwayRequestPipeline.class);
+
+    // Sent to the senders once the whole file was read
+    private static final Chunk END = new Chunk(-1, Collections.emptyList());
+
+    private final RunwayService runwayService;
+    private final int chunkSize;
+    private final int senders;
+    private final BlockingQueue<Chunk> queue;
+    // Permits for chunks read but not reported yet, it is what keeps memory flat when a chunk is slow
+    private final Semaphore inFlight;
+
+    private final List<Thread> threads;
+    private Thread producer;
+    // Set by the first sender that died, guarded by this
+    private RuntimeException failure;
+
+    // Guarded by this
+    private final Map<Long, List<Flight>> completed = new HashMap<>();
+    // Chunks whose call failed, their flights are in completed as they were sent
+    private final Set<Long> failedChunks = new HashSet<>();
+    private long nextToReport = 0;
+    private int assignedFlights = 0;
+    private int failedFlights = 0;
+
+    public RunwayRequestPipeline(RunwayService runwayService, int chunkSize, int senders, int queueCapacity) {
+        this.runwayService = runwayService;
+        this.chunkSize = chunkSize;
+        this.senders = senders;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.inFlight = new Semaphore(queueCapacity + senders);
+        this.threads = new ArrayList<>(senders);
+    }
+
+    // Returns the amount of flights assigned
+    public int run(BufferedReader reader, Function<String, Flight> parser) throws InterruptedException {
+        synchronized (this) {
+            producer = Thread.currentThread();
+            for (int i = 0; i < senders; i++) {
+                Thread t = new Thread(this::send, "runway-sender-" + i);
+                t.start();
+                threads.add(t);
+            }
+        }
+
+        try {
+            read(reader, parser);
+        } catch (InterruptedException e) {
+            // A dying sender interrupts the producer, its failure is thrown below
+            if (failure() == null)
+                throw e;
+        } finally {
+            stop();
+        }
+
+        synchronized (this) {
+            if (failure != null) {
+                // The interruption was only to stop reading
+                Thread.interrupted();
+                throw failure;
+            }
+            return assignedFlights;
+        }
+    }
+
+    // Flights not sent because the call of their chunk failed
+    public synchronized int getFailedFlights() {
+        return failedFlights;
+    }
+
+    private void stop() throws InterruptedException {
+        try {
+            for (int i = 0; i < senders && failure() == null; i++)
+                queue.put(END);
+        } catch (InterruptedException e) {
+            if (failure() == null)
+                throw e;
+        }
+        for (Thread t : threads) {
+            while (t.isAlive()) {
+                try {
+                    t.join();
+                } catch (InterruptedException e) {
+                    if (failure() == null)
+                        throw e;
+                }
+            }
+        }
+    }
+
+    private synchronized RuntimeException failure() {
+        return failure;
+    }
+
+    // Nobody waits for a sender that is gone: the producer and the other senders are interrupted
+    private synchronized void abort(RuntimeException e) {
+        if (failure != null)
+            return;
+        failure = e;
+        producer.interrupt();
+        for (Thread t : threads)
+            if (t != Thread.currentThread())
+                t.interrupt();
+    }
+
+    private void read(BufferedReader reader, Function<String, Flight> parser) throws InterruptedException {
+        long sequence = 0;
+        List<Flight> flights = new ArrayList<>(chunkSize);
+        try {
+            // to check first line and skip because it is header
+            String line = reader.readLine();
+
+            while ((line = reader.readLine()) != null) {
+                flights.add(parser.apply(line));
+                if (flights.size() == chunkSize) {
+                    inFlight.acquire();
+                    queue.put(new Chunk(sequence++, flights));
+                    flights = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (InterruptedException ie) {
+            throw ie;
+        } catch (Exception e) {
+            // Same as before: we stop reading but still send what was read
+            logger.error(e.toString());
+        }
+
+        if (!flights.isEmpty()) {
+            inFlight.acquire();
+            queue.put(new Chunk(sequence, flights));
+        }
+    }
+
+    private void send() {
+        try {
+            Chunk chunk;
+            while ((chunk = queue.take()) != END) {
+                List<Flight> results;
+                boolean failed = false;
+                try {
+                    results = runwayService.requestRunways(new FlightList(chunk.flights));
+                } catch (RemoteException re) {
+                    logger.error(re.toString());
+                    results = chunk.flights;
+                    failed = true;
+                }
+                report(chunk.sequence, results, failed);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            logger.error(e.toString());
+            abort(new IllegalStateException(Thread.currentThread().getName() + " died", e));
+        }
+    }
+
+    // Prints every result that is next in file order, keeping the ones that arrived early
+    private synchronized void report(long sequence, List<Flight> results, boolean failed) {
+        completed.put(sequence, results);
+        if (failed)
+            failedChunks.add(sequence);
+        List<Flight> next;
+        while ((next = completed.remove(nextToReport)) != null) {
+            boolean sent = !failedChunks.remove(nextToReport);
+            for (Flight flight : next) {
+                if (!sent) {
+                    failedFlights++;
+                    logger.error(String.format("Could not request a runway for Flight %d.", flight.getFlightId()));
+                } else if (flight.isAssigned())
+                    assignedFlights++;
+                else
+                    logger.info(String.format("Cannot assign Flight %d.", flight.getFlightId()));
+            }
+            nextToReport++;
+            inFlight.release();
+        }
+    }
+
+    private static class Chunk {
+        private final long sequence;
+        private final List<Flight> flights;
+
+        private Chunk(long sequence, List<Flight> flights) {
+            this.sequence = sequence;
+            this.flights = flights;
+        }
+    }
+}
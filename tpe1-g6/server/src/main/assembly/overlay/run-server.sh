@@ -1,4 +1,5 @@
 #!/bin/bash
 
-java  -cp 'lib/jars/*' "ar.edu.itba.pod.server.Server" "$@"
+#usage ./run-server [ -Dpersistence.dir=directory [ -Dpersistence.fsync=always|interval|never ] [ -Dpersistence.fsyncIntervalMillis=millis ] [ -Dpersistence.snapshotEvery=records ] ] [ -Dnotifications.callTimeoutMillis=millis ] [ -DreorderOnClose=true ]
+java "$@" -cp 'lib/jars/*' "ar.edu.itba.pod.server.Server"
 
@@ -1,24 +1,50 @@
 package ar.edu.itba.pod.server;
 
+import ar.edu.itba.pod.server.notifications.NotificationDispatcher;
+import ar.edu.itba.pod.server.persistence.AirportStore;
+import ar.edu.itba.pod.server.persistence.FsyncPolicy;
 import ar.edu.itba.pod.server.servants.Servant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.Optional;
 
 public class Server {
     private static final Logger logger = LoggerFactory.getLogger(Server.class);
+    private static final String RESPONSE_TIMEOUT = "sun.rmi.transport.tcp.responseTimeout";
+    private static final String DEFAULT_CALL_TIMEOUT = "5000";
 
-    public static void main(String[] args) throws RemoteException {
+    public static void main(String[] args) throws IOException {
         logger.info("tpe1-g6 Server Starting ...");
 
-        final Servant servant = new Servant();
+        // The only calls the server makes are the tracking callbacks, so this is how long a tracker can take to answer.
+        // Without it a tracker that vanished holds a notification worker until the connection is dropped. RMI has no
+        // timeout per call, so it is the same for every tracker (and would apply to any other call the server made)
+        if (System.getProperty(RESPONSE_TIMEOUT) == null)
+            System.setProperty(RESPONSE_TIMEOUT, Optional.ofNullable(System.getProperty("notifications.callTimeoutMillis")).orElse(DEFAULT_CALL_TIMEOUT));
+
+        // Durable mode only if a directory is given, otherwise everything is lost on restart
+        final Optional<AirportStore> store = openStore();
+        final Servant servant = store.isPresent() ? new Servant(store.get()) : new Servant();
+        servant.setReorderOnClose(Boolean.parseBoolean(Optional.ofNullable(System.getProperty("reorderOnClose")).orElse("false")));
         final Remote remote = UnicastRemoteObject.exportObject(servant, 0);
 
+        // Latencies, lock contention, queue depths and notification counters, for jconsole or any JMX client
+        try {
+            servant.registerMBeans(ManagementFactory.getPlatformMBeanServer());
+        } catch (JMException e) {
+            logger.error("Could not register metrics: " + e);
+        }
+
         final Registry registry = LocateRegistry.getRegistry();
 
         registry.rebind("admin", remote);
@@ -34,7 +60,30 @@ public class Server {
                 e.printStackTrace();
                 logger.error("Could not terminate executor successfully.");
             }
+            NotificationDispatcher dispatcher = servant.getDispatcher();
+            logger.info("Notifications: " + dispatcher.getDroppedEvents() + " events dropped, " + dispatcher.getFailedCalls()
+                    + " failed calls, " + dispatcher.getSlowSubscribers() + " slow and " + dispatcher.getEvictedSubscribers() + " evicted trackers.");
+            servant.close();
+            if (store.isPresent()) {
+                try {
+                    store.get().close();
+                } catch (IOException e) {
+                    logger.error("Could not close journal: " + e);
+                }
+            }
         }));
         logger.info("tpe1-g6 Server Started.");
     }
+
+    private static Optional<AirportStore> openStore() throws IOException {
+        String directory = System.getProperty("persistence.dir");
+        if (directory == null)
+            return Optional.empty();
+        FsyncPolicy policy = FsyncPolicy.getEnumOf(Optional.ofNullable(System.getProperty("persistence.fsync")).orElse(FsyncPolicy.ALWAYS.value))
+                .orElseThrow(() -> new IllegalArgumentException("'persistence.fsync' must be always, interval or never."));
+        long fsyncInterval = Long.parseLong(Optional.ofNullable(System.getProperty("persistence.fsyncIntervalMillis")).orElse("100"));
+        long snapshotEvery = Long.parseLong(Optional.ofNullable(System.getProperty("persistence.snapshotEvery")).orElse("100000"));
+        logger.info("Persisting to " + directory + " with fsync policy " + policy.value + ".");
+        return Optional.of(new AirportStore(Paths.get(directory), policy, fsyncInterval, snapshotEvery));
+    }
 }
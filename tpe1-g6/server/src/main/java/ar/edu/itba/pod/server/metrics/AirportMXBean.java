@@ -0,0 +1,15 @@
+package ar.edu.itba.pod.server.metrics;
+
+import java.util.Map;
+
+// Current state of the airport
+public interface AirportMXBean {
+    int getRunways();
+
+    // Flights waiting on each runway
+    Map<String, Integer> getQueueDepths();
+
+    long getQueuedFlights();
+
+    long getDepartures();
+}
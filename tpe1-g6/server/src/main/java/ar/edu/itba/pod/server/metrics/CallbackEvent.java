@@ -0,0 +1,23 @@
+package ar.edu.itba.pod.server.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A call to a tracking callback delivering one or more events
+@Name("ar.edu.itba.pod.Callback")
+@Label("Tracker Callback")
+@Category("Airport")
+@Description("Delivery of tracking events to a tracker")
+public class CallbackEvent extends jdk.jfr.Event {
+    @Label("Flight Id")
+    @Description("Flight of the first event delivered")
+    public int flightId;
+
+    @Label("Events")
+    public int events;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,39 @@
+package ar.edu.itba.pod.server.metrics;
+
+import jdk.jfr.EventType;
+
+// Whether each of our Flight Recorder events is being recorded, so no event is created while it is not.
+// Checking is a volatile read, recordings can be started and stopped at any time (e.g. with jcmd)
+public final class FlightRecorderEvents {
+    private static final EventType OPERATION = EventType.getEventType(OperationEvent.class);
+    private static final EventType WRITE_LOCK_WAIT = EventType.getEventType(WriteLockWaitEvent.class);
+    private static final EventType CALLBACK = EventType.getEventType(CallbackEvent.class);
+
+    private FlightRecorderEvents() {
+    }
+
+    static OperationEvent beginOperation(Operation operation) {
+        if (!OPERATION.isEnabled())
+            return OperationEvent.DISABLED;
+        OperationEvent event = new OperationEvent(operation, true);
+        event.begin();
+        return event;
+    }
+
+    static WriteLockWaitEvent beginWriteLockWait() {
+        if (!WRITE_LOCK_WAIT.isEnabled())
+            return null;
+        WriteLockWaitEvent event = new WriteLockWaitEvent();
+        event.begin();
+        return event;
+    }
+
+    // Null if callbacks are not being recorded
+    public static CallbackEvent beginCallback() {
+        if (!CALLBACK.isEnabled())
+            return null;
+        CallbackEvent event = new CallbackEvent();
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,47 @@
+package ar.edu.itba.pod.server.metrics;
+
+import ar.edu.itba.pod.api.metrics.LatencyHistogram;
+
+// The latencies of an operation (or of waiting for and holding a lock) as an MXBean
+public class Latency implements LatencyMXBean {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    public void recordSince(long startNanos) {
+        histogram.recordNanos(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return histogram.getMean();
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return histogram.getMax();
+    }
+
+    @Override
+    public long getP50Micros() {
+        return histogram.getPercentile(0.5);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return histogram.getPercentile(0.99);
+    }
+
+    @Override
+    public long getP999Micros() {
+        return histogram.getPercentile(0.999);
+    }
+
+    @Override
+    public void reset() {
+        histogram.reset();
+    }
+}
@@ -0,0 +1,18 @@
+package ar.edu.itba.pod.server.metrics;
+
+// Latencies of an operation (or of waiting for and holding a lock) since the server started or the last reset
+public interface LatencyMXBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    long getMaxMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    void reset();
+}
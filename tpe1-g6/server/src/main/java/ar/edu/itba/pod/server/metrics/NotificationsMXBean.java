@@ -0,0 +1,23 @@
+package ar.edu.itba.pod.server.metrics;
+
+// Counters of the tracking notifications since the server started
+public interface NotificationsMXBean {
+    // Events published to a subscriber, whatever happened to them afterwards
+    long getPublishedEvents();
+
+    // Updates that replaced an older one still waiting in the mailbox
+    long getCoalescedEvents();
+
+    long getDeliveredEvents();
+
+    // Events waiting in the mailboxes right now
+    long getPendingEvents();
+
+    long getDroppedEvents();
+
+    long getFailedCalls();
+
+    long getSlowSubscribers();
+
+    long getEvictedSubscribers();
+}
@@ -0,0 +1,24 @@
+package ar.edu.itba.pod.server.metrics;
+
+// Remote operations of the servant that get their latency measured, named as the method they measure
+public enum Operation {
+    ADD_RUNWAY("addRunway"),
+    IS_OPEN("isOpen"),
+    OPEN_RUNWAY("openRunway"),
+    CLOSE_RUNWAY("closeRunway"),
+    TAKE_OFF_ORDER("takeOffOrder"),
+    TAKE_OFF_ROUNDS("takeOffRounds"),
+    REORDER_RUNWAYS("reorderRunways"),
+    REORDER_RUNWAY("reorderRunway"),
+    GET_DEPARTURES("getDepartures"),
+    GET_DEPARTURES_PAGE("getDeparturesPage"),
+    REQUEST_RUNWAY("requestRunway"),
+    REQUEST_RUNWAYS("requestRunways"),
+    REGISTER("register");
+
+    public final String value;
+
+    Operation(final String value) {
+        this.value = value;
+    }
+}
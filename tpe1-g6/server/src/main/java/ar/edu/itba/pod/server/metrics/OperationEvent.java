@@ -0,0 +1,56 @@
+package ar.edu.itba.pod.server.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// A remote operation of the servant, from the call arriving to the answer (notifications are delivered afterwards)
+@Name("ar.edu.itba.pod.Operation")
+@Label("Airport Operation")
+@Category("Airport")
+@Description("Remote operation served by the airport server")
+public class OperationEvent extends jdk.jfr.Event {
+    // Handed out while the event is not being recorded, so operations don't allocate one. Never committed
+    static final OperationEvent DISABLED = new OperationEvent(null, false);
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Runway")
+    String runway;
+
+    @Label("Flights Moved")
+    @Description("Flights assigned, reassigned or departed by the operation")
+    int flightsMoved;
+
+    @Label("Flights Notified")
+    @Description("Events queued for the trackers")
+    int flightsNotified;
+
+    private final transient boolean recording;
+
+    OperationEvent(Operation operation, boolean recording) {
+        this.operation = operation == null ? null : operation.value;
+        this.recording = recording;
+    }
+
+    boolean isRecording() {
+        return recording;
+    }
+
+    public void setRunway(String runway) {
+        if (recording)
+            this.runway = runway;
+    }
+
+    public void setFlightsMoved(int flightsMoved) {
+        if (recording)
+            this.flightsMoved = flightsMoved;
+    }
+
+    public void setFlightsNotified(int flightsNotified) {
+        if (recording)
+            this.flightsNotified = flightsNotified;
+    }
+}
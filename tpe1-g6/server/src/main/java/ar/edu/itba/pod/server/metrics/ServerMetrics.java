@@ -0,0 +1,81 @@
+package ar.edu.itba.pod.server.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.concurrent.locks.Lock;
+
+// Latency of every operation and of the airport lock, kept by the servant and exposed through JMX along with the state
+// of the airport and the notification counters. Operations and long write lock waits are also Flight Recorder events
+public class ServerMetrics {
+    public static final String DOMAIN = "ar.edu.itba.pod";
+
+    private final Latency[] operations = new Latency[Operation.values().length];
+    private final Latency readLockWait = new Latency();
+    private final Latency readLockHold = new Latency();
+    private final Latency writeLockWait = new Latency();
+    private final Latency writeLockHold = new Latency();
+
+    public ServerMetrics() {
+        for (int i = 0; i < operations.length; i++)
+            operations[i] = new Latency();
+    }
+
+    public void record(Operation operation, long startNanos) {
+        operations[operation.ordinal()].recordSince(startNanos);
+    }
+
+    // A Flight Recorder event for the operation, a shared one that is never committed if it is not being recorded
+    public OperationEvent begin(Operation operation) {
+        return FlightRecorderEvents.beginOperation(operation);
+    }
+
+    public void record(Operation operation, long startNanos, OperationEvent event) {
+        record(operation, startNanos);
+        if (event.isRecording())
+            event.commit();
+    }
+
+    public Latency getLatency(Operation operation) {
+        return operations[operation.ordinal()];
+    }
+
+    public TimedLock timedReadLock(Lock lock) {
+        return new TimedLock(lock, readLockWait, readLockHold, false);
+    }
+
+    public TimedLock timedWriteLock(Lock lock) {
+        return new TimedLock(lock, writeLockWait, writeLockHold, true);
+    }
+
+    public Latency getReadLockWait() {
+        return readLockWait;
+    }
+
+    public Latency getReadLockHold() {
+        return readLockHold;
+    }
+
+    public Latency getWriteLockWait() {
+        return writeLockWait;
+    }
+
+    public Latency getWriteLockHold() {
+        return writeLockHold;
+    }
+
+    public void register(MBeanServer server, AirportMXBean airport, NotificationsMXBean notifications) throws JMException {
+        for (Operation o : Operation.values())
+            server.registerMBean(getLatency(o), name("Operation", o.value));
+        server.registerMBean(readLockWait, name("Lock", "readWait"));
+        server.registerMBean(readLockHold, name("Lock", "readHold"));
+        server.registerMBean(writeLockWait, name("Lock", "writeWait"));
+        server.registerMBean(writeLockHold, name("Lock", "writeHold"));
+        server.registerMBean(airport, new ObjectName(DOMAIN + ":type=Airport"));
+        server.registerMBean(notifications, new ObjectName(DOMAIN + ":type=Notifications"));
+    }
+
+    private static ObjectName name(String type, String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + name);
+    }
+}
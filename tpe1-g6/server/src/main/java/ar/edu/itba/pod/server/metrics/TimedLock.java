@@ -0,0 +1,85 @@
+package ar.edu.itba.pod.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+// A lock that records how long each thread waited to get it and how long it held it. A reentrant acquisition counts
+// as part of the outermost one. Waits for an exclusive lock are also Flight Recorder events
+public class TimedLock implements Lock {
+    private final Lock lock;
+    private final Latency wait;
+    private final Latency hold;
+    private final boolean exclusive;
+    // Depth and acquisition time of the current thread, only touched by that thread while it holds the lock
+    private final ThreadLocal<long[]> held = ThreadLocal.withInitial(() -> new long[2]);
+
+    public TimedLock(Lock lock, Latency wait, Latency hold, boolean exclusive) {
+        this.lock = lock;
+        this.wait = wait;
+        this.hold = hold;
+        this.exclusive = exclusive;
+    }
+
+    @Override
+    public void lock() {
+        WriteLockWaitEvent event = exclusive ? FlightRecorderEvents.beginWriteLockWait() : null;
+        long start = System.nanoTime();
+        lock.lock();
+        waited(event);
+        acquired(start);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        WriteLockWaitEvent event = exclusive ? FlightRecorderEvents.beginWriteLockWait() : null;
+        long start = System.nanoTime();
+        lock.lockInterruptibly();
+        waited(event);
+        acquired(start);
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (!lock.tryLock())
+            return false;
+        acquired(System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        if (!lock.tryLock(time, unit))
+            return false;
+        acquired(start);
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        long[] h = held.get();
+        if (--h[0] == 0)
+            hold.recordSince(h[1]);
+        lock.unlock();
+    }
+
+    @Override
+    public Condition newCondition() {
+        return lock.newCondition();
+    }
+
+    // Committed only if the wait went over the event threshold
+    private static void waited(WriteLockWaitEvent event) {
+        if (event != null)
+            event.commit();
+    }
+
+    private void acquired(long start) {
+        long[] h = held.get();
+        if (h[0]++ == 0) {
+            wait.recordSince(start);
+            h[1] = System.nanoTime();
+        }
+    }
+}
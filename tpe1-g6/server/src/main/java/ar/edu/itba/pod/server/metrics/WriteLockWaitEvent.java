@@ -0,0 +1,16 @@
+package ar.edu.itba.pod.server.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+// A thread waiting for the airport write lock, only recorded when the wait is longer than the threshold
+@Name("ar.edu.itba.pod.WriteLockWait")
+@Label("Airport Write Lock Wait")
+@Category("Airport")
+@Description("Wait for exclusive access to the airport")
+@Threshold("10 ms")
+public class WriteLockWaitEvent extends jdk.jfr.Event {
+}
@@ -1,30 +1,130 @@
 package ar.edu.itba.pod.server.model;
 
+import ar.edu.itba.pod.api.model.Flight;
+
 import java.io.Serializable;
 import java.util.*;
 
 public class Airport implements Serializable {
+    private static final long serialVersionUID = 1L;
     private final List<Runway> runways;
+    private final Map<String, Runway> runwaysByName;
+    private final RunwaySelector selector;
+    private final FlightIndex flightIndex;
+    private final DepartureLog departureLog;
+    // Destinations, airlines and runway names, shared by the queues and the departure log
+    private final SymbolTable symbols;
 
     public Airport() {
+        this(new DepartureLog());
+    }
+
+    public Airport(DepartureLog departureLog) {
         this.runways = new ArrayList<>();
+        this.runwaysByName = new HashMap<>();
+        this.selector = new RunwaySelector();
+        this.flightIndex = new FlightIndex();
+        this.departureLog = departureLog;
+        this.symbols = new SymbolTable();
+        departureLog.symbols = symbols;
     }
     
     // Runway is a reference, it's up to the user of the class to deal with making it thread safe
     public Optional<Runway> getRunway(String name) {
-        return runways.stream().filter(r -> r.getName().equals(name)).findFirst();
+        return Optional.ofNullable(runwaysByName.get(name));
     }
 
-    // Returning a copy since we don't want to allow the removing of runways, but the copy has runway references since we want to change stuff about them
+    // Returning a read only view since we don't want to allow the removing of runways, but it has runway references since we want to change stuff about them
     public List<Runway> getRunways() {
-        return new LinkedList<>(runways);
+        return Collections.unmodifiableList(runways);
+    }
+
+    public RunwaySelector getSelector() {
+        return selector;
+    }
+
+    public FlightIndex getFlightIndex() {
+        return flightIndex;
+    }
+
+    public DepartureLog getDepartureLog() {
+        return departureLog;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
     }
 
     public void addRunway(Runway r) {
         runways.add(r);
+        runwaysByName.put(r.getName(), r);
+        symbols.attach(r);
+        selector.add(r);
+        flightIndex.attach(r);
+        departureLog.attach(r);
     }
 
     public boolean runwayExists(String name) {
-        return runways.stream().anyMatch(r -> r.getName().equals(name));
+        return runwaysByName.containsKey(name);
+    }
+
+    // Take off orders for every runway, one round after the other. Nothing else can use the airport meanwhile, it's up to
+    // the user of the class to make sure of that. Departed flights are added to the list, in the order they departed
+    public void takeOffOrders(int rounds, List<Flight> departed) {
+        for (int i = 0; i < rounds; i++)
+            for (Runway r : runways)
+                r.makeDeparture().ifPresent(departed::add);
+    }
+
+    // Takes every queued flight out and assigns them again to the open runways. Nothing else can use the airport meanwhile,
+    // it's up to the user of the class to make sure of that. Assigned flights are added to the list, the rest are returned.
+    // Flights are taken out one from each runway at a time (in the order runways were added), and each one goes to the
+    // best open runway for it, as requestRunway would choose it. Both steps are done without going through every runway:
+    // only the runways that still have flights are visited, and the best runway comes from the selector, so it's O(F log R)
+    public List<Flight> reorderRunways(List<Flight> assigned) {
+        final List<Flight> flights = new ArrayList<>(flightIndex.size());
+        List<Runway> pending = new ArrayList<>(runways);
+        while (!pending.isEmpty()) {
+            final List<Runway> notEmpty = new ArrayList<>(pending.size());
+            for (Runway r : pending) {
+                r.removeFlight().ifPresent(flights::add);
+                if (r.notEmpty())
+                    notEmpty.add(r);
+            }
+            pending = notEmpty;
+        }
+
+        final List<Flight> failed = new ArrayList<>();
+        for (Flight f : flights) {
+            Runway r = selector.best(f.getMinType(), false);
+            Optional<Flight> added = r == null ? Optional.empty() : r.addFlightToQueue(f);
+            if (added.isPresent())
+                assigned.add(added.get());
+            else
+                failed.add(f);
+        }
+        return failed;
+    }
+
+    // Moves the flights of a single runway (in queue order) to the best open runway for each one, leaving every other queue
+    // as it was except for the flights it gets. Flights that have no other runway stay queued in this one, in the same order.
+    // Same as above, nothing else can use the airport meanwhile. Moved flights are added to the list, the ones that stay are returned
+    public List<Flight> reorderRunway(Runway r, List<Flight> assigned) {
+        final List<Flight> flights = new ArrayList<>(r.getQueueSize());
+        Optional<Flight> removed;
+        while ((removed = r.removeFlight()).isPresent())
+            flights.add(removed.get());
+
+        final List<Flight> stayed = new ArrayList<>();
+        for (Flight f : flights) {
+            Runway best = selector.best(f.getMinType(), false, r);
+            Optional<Flight> added = best == null ? Optional.empty() : best.addFlightToQueue(f);
+            if (added.isPresent())
+                assigned.add(added.get());
+            else
+                stayed.add(f);
+        }
+        stayed.forEach(r::addFlightToQueue);
+        return stayed;
     }
 }
@@ -0,0 +1,261 @@
+package ar.edu.itba.pod.server.model;
+
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.api.model.RunwayType;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Every departure of the airport, in take off order, with secondary indexes by airline and by runway.
+// Departures are stored off heap, as fixed width records in memory mapped segment files, so the heap does not grow with
+// the history: strings are replaced by ids of the airport symbol table and just the last departures are kept as objects
+// (the hot tail). The indexes are lists of record positions, also in mapped segments: each airline and runway gets chunks
+// of INDEX_CHUNK positions and only the numbers of its chunks are on the heap, 4 bytes every INDEX_CHUNK departures.
+// It is append only, so positions never change
+public class DepartureLog implements Serializable {
+    private static final long serialVersionUID = 1L;
+    // flightId, destination id, airline id, runway id, wait time (int each) and min type (padded to an int)
+    private static final int RECORD_BYTES = 24;
+    private static final int SEGMENT_RECORDS = 1 << 16;
+    private static final int HOT_TAIL = 1024;
+    private static final int INDEX_CHUNK = 1024;
+    private static final int INDEX_SEGMENT_CHUNKS = 64;
+    private static final RunwayType[] TYPES = RunwayType.values();
+
+    private final String directory;
+    private final boolean temporary;
+    private transient List<MappedByteBuffer> segments = new ArrayList<>();
+    private transient List<MappedByteBuffer> indexSegments = new ArrayList<>();
+    private int count = 0;
+    // Index chunks handed out so far
+    private int chunks = 0;
+    private transient boolean closed = false;
+    // Last departures, by position modulo its size
+    private final Flight[] hotTail = new Flight[HOT_TAIL];
+
+    // Set by the Airport this log belongs to, the ids in the segments are from it
+    SymbolTable symbols;
+    private final Map<Integer, Positions> byAirline = new HashMap<>();
+    private final Map<Integer, Positions> byRunway = new HashMap<>();
+
+    // Has its own lock since runways append to it while holding only their own lock
+    private final ReentrantReadWriteLock reentrantLock = new ReentrantReadWriteLock();
+    private final Lock readLock = reentrantLock.readLock();
+    private final Lock writeLock = reentrantLock.writeLock();
+
+    // Segments go to a temporary directory, removed when the server stops
+    public DepartureLog() {
+        this(temporaryDirectory(), true);
+    }
+
+    public DepartureLog(Path directory) {
+        this(directory, false);
+    }
+
+    private DepartureLog(Path directory, boolean temporary) {
+        try {
+            this.directory = Files.createDirectories(directory).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.temporary = temporary;
+    }
+
+    public void attach(Runway r) {
+        r.departureLog = this;
+    }
+
+    // The ids are the symbols of the departed flight, which the runway already has
+    void add(Flight departed, int destination, int airline, int runway) {
+        writeLock.lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("Departure log is closed");
+            int position = count;
+            MappedByteBuffer segment = segment(segments, "departures-", position / SEGMENT_RECORDS, SEGMENT_RECORDS * RECORD_BYTES);
+            int offset = (position % SEGMENT_RECORDS) * RECORD_BYTES;
+            segment.putInt(offset, departed.getFlightId());
+            segment.putInt(offset + 4, destination);
+            segment.putInt(offset + 8, airline);
+            segment.putInt(offset + 12, runway);
+            segment.putInt(offset + 16, departed.getWaitTime());
+            segment.putInt(offset + 20, departed.getMinType().ordinal());
+
+            add(byAirline.computeIfAbsent(airline, k -> new Positions()), position);
+            add(byRunway.computeIfAbsent(runway, k -> new Positions()), position);
+            hotTail[position % HOT_TAIL] = departed;
+            count++;
+        } finally { writeLock.unlock(); }
+    }
+
+    public int size() {
+        readLock.lock();
+        try {
+            return count;
+        } finally { readLock.unlock(); }
+    }
+
+    public List<Flight> getAll() {
+        return getPage(null, null, 0, Integer.MAX_VALUE);
+    }
+
+    public List<Flight> getByAirline(String airline) {
+        return getPage(null, airline, 0, Integer.MAX_VALUE);
+    }
+
+    public List<Flight> getByRunway(String runway) {
+        return getPage(runway, null, 0, Integer.MAX_VALUE);
+    }
+
+    // Up to size flights from the given position of the query (the same one as the other getters, null for no filter)
+    public List<Flight> getPage(String runway, String airline, int from, int size) {
+        readLock.lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("Departure log is closed");
+            Positions positions = null;
+            if (runway != null || airline != null) {
+                int id = symbols.find(runway != null ? runway : airline);
+                positions = (runway != null ? byRunway : byAirline).get(id);
+                if (positions == null)
+                    return Collections.emptyList();
+            }
+            int total = positions == null ? count : positions.size;
+            if (from >= total)
+                return Collections.emptyList();
+            int to = (int) Math.min(total, (long) from + size);
+            List<Flight> flights = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++)
+                flights.add(read(positions == null ? i : position(positions, i)));
+            return flights;
+        } finally { readLock.unlock(); }
+    }
+
+    // Always a new flight: the ones of the hot tail are copied (callers may change what they get), older ones are read
+    // from their segment
+    private Flight read(int position) {
+        if (position >= count - HOT_TAIL)
+            return hotTail[position % HOT_TAIL].copy();
+        MappedByteBuffer segment = segments.get(position / SEGMENT_RECORDS);
+        int offset = (position % SEGMENT_RECORDS) * RECORD_BYTES;
+        Flight f = new Flight(segment.getInt(offset), symbols.name(segment.getInt(offset + 4)),
+                symbols.name(segment.getInt(offset + 8)), TYPES[segment.getInt(offset + 20)]);
+        f.increaseWaitTime(segment.getInt(offset + 16));
+        f.assignRunway(symbols.name(segment.getInt(offset + 12)), 0);
+        return f;
+    }
+
+    // Drops the segments, and deletes their files if they were temporary. Java has no supported way to unmap a file, so the
+    // memory is given back once the mappings are collected. Nothing can be added afterwards
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+            if (!temporary) {
+                segments.forEach(MappedByteBuffer::force);
+                indexSegments.forEach(MappedByteBuffer::force);
+            }
+            segments.clear();
+            indexSegments.clear();
+            if (temporary) {
+                File[] files = new File(directory).listFiles();
+                if (files != null)
+                    for (File f : files)
+                        Files.deleteIfExists(f.toPath());
+                Files.deleteIfExists(Paths.get(directory));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally { writeLock.unlock(); }
+    }
+
+    private void add(Positions positions, int position) {
+        if (positions.size % INDEX_CHUNK == 0) {
+            if (positions.size / INDEX_CHUNK == positions.chunks.length)
+                positions.chunks = Arrays.copyOf(positions.chunks, positions.chunks.length * 2);
+            positions.chunks[positions.size / INDEX_CHUNK] = chunks++;
+        }
+        int chunk = positions.chunks[positions.size / INDEX_CHUNK];
+        segment(indexSegments, "positions-", chunk / INDEX_SEGMENT_CHUNKS, INDEX_SEGMENT_CHUNKS * INDEX_CHUNK * Integer.BYTES)
+                .putInt(indexOffset(chunk, positions.size), position);
+        positions.size++;
+    }
+
+    // The i-th position of the list
+    private int position(Positions positions, int i) {
+        int chunk = positions.chunks[i / INDEX_CHUNK];
+        return indexSegments.get(chunk / INDEX_SEGMENT_CHUNKS).getInt(indexOffset(chunk, i));
+    }
+
+    private static int indexOffset(int chunk, int i) {
+        return ((chunk % INDEX_SEGMENT_CHUNKS) * INDEX_CHUNK + i % INDEX_CHUNK) * Integer.BYTES;
+    }
+
+    // Segments are mapped in order, the next one when it's first needed
+    private MappedByteBuffer segment(List<MappedByteBuffer> mapped, String prefix, int segment, int bytes) {
+        return segment < mapped.size() ? mapped.get(segment) : map(mapped, prefix, segment, bytes);
+    }
+
+    private MappedByteBuffer map(List<MappedByteBuffer> mapped, String prefix, int segment, int bytes) {
+        File file = Paths.get(directory, prefix + segment + ".seg").toFile();
+        if (temporary)
+            file.deleteOnExit();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            mapped.add(buffer);
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path temporaryDirectory() {
+        try {
+            Path directory = Files.createTempDirectory("departures");
+            directory.toFile().deleteOnExit();
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Segments are forced to disk so a snapshot only needs the chunk numbers and counters, the records and positions are
+    // in the segments
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        segments.forEach(MappedByteBuffer::force);
+        indexSegments.forEach(MappedByteBuffer::force);
+        out.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        segments = new ArrayList<>();
+        for (int s = 0; s * SEGMENT_RECORDS < count; s++)
+            map(segments, "departures-", s, SEGMENT_RECORDS * RECORD_BYTES);
+        indexSegments = new ArrayList<>();
+        for (int s = 0; s * INDEX_SEGMENT_CHUNKS < chunks; s++)
+            map(indexSegments, "positions-", s, INDEX_SEGMENT_CHUNKS * INDEX_CHUNK * Integer.BYTES);
+    }
+
+    // Growable list of record positions, kept in the index chunks it lists
+    private static class Positions implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private int[] chunks = new int[4];
+        private int size = 0;
+    }
+}
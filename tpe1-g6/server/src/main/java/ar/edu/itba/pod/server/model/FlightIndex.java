@@ -0,0 +1,54 @@
+package ar.edu.itba.pod.server.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Index of every queued flight by id, so finding a flight does not go through every queue.
+// Runways keep it updated themselves (with their lock held) when flights enter or leave their queue.
+// Flight ids are expected to be unique among queued flights, but an id queued twice keeps both entries (in the order they
+// were queued) and finding it gives the oldest one still queued
+public class FlightIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+    // Lists are never changed, only replaced, so readers don't need a lock
+    private final Map<Integer, List<QueuedFlight>> flights = new ConcurrentHashMap<>();
+
+    public void attach(Runway r) {
+        r.flightIndex = this;
+    }
+
+    // The runway of the entry may be changed by others until its lock is taken, so it must be checked again after that
+    public Optional<QueuedFlight> get(int flightId) {
+        List<QueuedFlight> queued = flights.get(flightId);
+        return queued == null ? Optional.empty() : Optional.of(queued.get(0));
+    }
+
+    // Amount of distinct ids queued
+    public int size() {
+        return flights.size();
+    }
+
+    void queued(QueuedFlight queued) {
+        flights.merge(queued.getFlightId(), Collections.singletonList(queued), (current, added) -> {
+            List<QueuedFlight> all = new ArrayList<>(current.size() + 1);
+            all.addAll(current);
+            all.add(queued);
+            return Collections.unmodifiableList(all);
+        });
+    }
+
+    // Removes the entry of that runway and sequence, other entries of the id (if it was queued twice) stay
+    void dequeued(Runway runway, int flightId, long sequence) {
+        flights.computeIfPresent(flightId, (id, current) -> {
+            List<QueuedFlight> rest = new ArrayList<>(current.size());
+            for (QueuedFlight q : current)
+                if (q.getRunway() != runway || q.getSequence() != sequence)
+                    rest.add(q);
+            return rest.isEmpty() ? null : rest.size() == current.size() ? current : Collections.unmodifiableList(rest);
+        });
+    }
+}
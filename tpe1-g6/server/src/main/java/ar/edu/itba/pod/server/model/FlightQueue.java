@@ -0,0 +1,109 @@
+package ar.edu.itba.pod.server.model;
+
+import ar.edu.itba.pod.api.model.RunwayType;
+
+import java.io.Serializable;
+
+// Queue of a runway as a growable ring buffer over parallel arrays, one per field, so a queued flight takes no objects
+// and going through the queue reads contiguous memory. Flights only leave from the head, so index i of the queue is
+// always the flight with i flights ahead
+class FlightQueue implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final RunwayType[] TYPES = RunwayType.values();
+
+    private int[] flightIds = new int[INITIAL_CAPACITY];
+    // Symbol ids
+    private int[] destinations = new int[INITIAL_CAPACITY];
+    private int[] airlines = new int[INITIAL_CAPACITY];
+    private byte[] minTypes = new byte[INITIAL_CAPACITY];
+    // Wait time the flight had when it was queued (from runways it was in before)
+    private int[] waitTimes = new int[INITIAL_CAPACITY];
+    // Number of take off orders the runway had received when the flight was queued
+    private long[] queuedAtOrders = new long[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(int flightId, int destination, int airline, RunwayType minType, int waitTime, long queuedAtOrder) {
+        if (size == flightIds.length)
+            grow();
+        int slot = slot(size);
+        flightIds[slot] = flightId;
+        destinations[slot] = destination;
+        airlines[slot] = airline;
+        minTypes[slot] = (byte) minType.ordinal();
+        waitTimes[slot] = waitTime;
+        queuedAtOrders[slot] = queuedAtOrder;
+        size++;
+    }
+
+    void removeFirst() {
+        head = slot(1);
+        size--;
+    }
+
+    // Index of the first flight with that id, -1 if there is none
+    int indexOf(int flightId) {
+        for (int i = 0; i < size; i++)
+            if (flightIds[slot(i)] == flightId)
+                return i;
+        return -1;
+    }
+
+    int getFlightId(int index) {
+        return flightIds[slot(index)];
+    }
+
+    int getDestination(int index) {
+        return destinations[slot(index)];
+    }
+
+    int getAirline(int index) {
+        return airlines[slot(index)];
+    }
+
+    RunwayType getMinType(int index) {
+        return TYPES[minTypes[slot(index)]];
+    }
+
+    int getWaitTime(int index) {
+        return waitTimes[slot(index)];
+    }
+
+    long getQueuedAtOrder(int index) {
+        return queuedAtOrders[slot(index)];
+    }
+
+    private int slot(int index) {
+        int slot = head + index;
+        return slot < flightIds.length ? slot : slot - flightIds.length;
+    }
+
+    // Doubles the arrays, moving the flights so the head is at 0 again
+    private void grow() {
+        int capacity = flightIds.length;
+        flightIds = unwrap(flightIds, new int[capacity * 2], capacity);
+        destinations = unwrap(destinations, new int[capacity * 2], capacity);
+        airlines = unwrap(airlines, new int[capacity * 2], capacity);
+        minTypes = unwrap(minTypes, new byte[capacity * 2], capacity);
+        waitTimes = unwrap(waitTimes, new int[capacity * 2], capacity);
+        queuedAtOrders = unwrap(queuedAtOrders, new long[capacity * 2], capacity);
+        head = 0;
+    }
+
+    // The queue is full when growing, so it goes from the head to the end of the array and then from its start
+    private <T> T unwrap(T from, T to, int capacity) {
+        int first = capacity - head;
+        System.arraycopy(from, head, to, 0, first);
+        System.arraycopy(from, 0, to, first, head);
+        return to;
+    }
+}
@@ -0,0 +1,32 @@
+package ar.edu.itba.pod.server.model;
+
+import java.io.Serializable;
+
+// Entry of the flight index: where a queued flight is. The flight itself is in the queue of the runway, at the position
+// given by its sequence. Instead of updating every queued flight on each take off, the runway derives the position and
+// wait time of the flight from the counters it had when the flight was queued
+public class QueuedFlight implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final Runway runway;
+    private final int flightId;
+    // Number of flights queued on the runway before this one, ever
+    private final long sequence;
+
+    QueuedFlight(final Runway runway, final int flightId, final long sequence) {
+        this.runway = runway;
+        this.flightId = flightId;
+        this.sequence = sequence;
+    }
+
+    public Runway getRunway() {
+        return runway;
+    }
+
+    public int getFlightId() {
+        return flightId;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+}
@@ -5,22 +5,42 @@ import ar.edu.itba.pod.api.model.RunwayType;
 
 import java.io.Serializable;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Runway implements Serializable, Comparable<Runway> {
+    private static final long serialVersionUID = 1L;
     private final String name;
     private final RunwayType type;
-    private boolean isOpen;
-    private final Queue<Flight> flightsQueue;
-    private final List<Flight> departures;
+    // Both are volatile so they can be read (e.g. when choosing a runway) without taking the runway lock
+    private volatile boolean isOpen;
+    private volatile int queueSize;
+    private final FlightQueue flightsQueue;
+    // Flights that ever entered and left the queue, the position of a queued flight is its sequence minus dequeued
+    private long enqueued;
+    private long dequeued;
+    // Take off orders received, every queued flight waits one more order on each (even if the runway is closed)
+    private long takeOffOrders;
+    // Guards the queue of this runway only, so operations on different runways do not block each other
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    // Managed by the RunwaySelector this runway was added to (guarded by the selector)
+    RunwaySelector selector;
+    int selectorIndex = -1;
+    int selectorKey;
+    boolean selectorOpen;
+    // Set by the FlightIndex, DepartureLog and SymbolTable this runway was attached to
+    FlightIndex flightIndex;
+    DepartureLog departureLog;
+    SymbolTable symbols;
+    int symbol;
 
     public Runway(final String name, final RunwayType type) {
         this.name = name;
         this.type = type;
         // Runways are open by default
         this.isOpen = true;
-        this.flightsQueue = new LinkedList<>();
-        this.departures = new ArrayList<>();
+        this.flightsQueue = new FlightQueue();
     }
 
     public String getName() {
@@ -31,8 +51,16 @@ public class Runway implements Serializable, Comparable<Runway> {
         return type;
     }
 
+    public Lock getLock() {
+        return lock;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
     public boolean notEmpty() {
-        return !flightsQueue.isEmpty();
+        return queueSize > 0;
     }
 
     public boolean isOpen() {
@@ -41,56 +69,109 @@ public class Runway implements Serializable, Comparable<Runway> {
 
     public void openRunway() {
         this.isOpen = true;
+        updateSelector();
     }
 
     public void closeRunway() {
         this.isOpen = false;
+        updateSelector();
     }
 
-    // Returns copy of the updated flight if successful
-    public Optional<Flight> addFlightToQueue(Flight flight) {
-        if (flight == null) return Optional.empty();
-        Flight toAdd = flight.copy();
-        toAdd.assignRunway(name, flightsQueue.size());
-        return flightsQueue.offer(toAdd) ? Optional.of(toAdd.copy()) : Optional.empty();
+    private void updateSelector() {
+        if (selector != null)
+            selector.update(this);
     }
 
-    // Returns copy of departed flight
+    // Returns copy of the updated flight if successful. Only the ids of its strings are kept
+    public Optional<Flight> addFlightToQueue(Flight flight) {
+        if (flight == null) return Optional.empty();
+        flightsQueue.add(flight.getFlightId(), symbols.id(flight.getDestCode()), symbols.id(flight.getAirline()),
+                flight.getMinType(), flight.getWaitTime(), takeOffOrders);
+        if (flightIndex != null)
+            flightIndex.queued(new QueuedFlight(this, flight.getFlightId(), enqueued));
+        enqueued++;
+        queueSize = flightsQueue.size();
+        updateSelector();
+        return Optional.of(materialize(flightsQueue.size() - 1));
+    }
+
+    // Returns the departed flight, which is final and must not be modified.
+    // It's O(1): the flights behind it get their position and wait time updated by the counters
     public Optional<Flight> makeDeparture() {
-        flightsQueue.forEach(f -> {
-            f.increaseWaitTime();
-            if (isOpen)
-                f.decreaseAhead();
-        });
-        Optional<Flight> toDepart = isOpen ? Optional.ofNullable(flightsQueue.poll()) : Optional.empty();
-        toDepart.ifPresent(departures::add);
-        return toDepart.map(Flight::copy);
-    }
-
-    // We return copies since once departed the data should be final
-    public List<Flight> getDeparted(String airline) {
-        return departures.stream().filter(f -> airline == null || f.getAirline().equals(airline)).map(Flight::copy).collect(Collectors.toList());
+        takeOffOrders++;
+        if (!isOpen || flightsQueue.isEmpty())
+            return Optional.empty();
+        Flight departed = materialize(0);
+        if (departureLog != null)
+            departureLog.add(departed, flightsQueue.getDestination(0), flightsQueue.getAirline(0), symbol);
+        dequeueFirst();
+        return Optional.of(departed);
     }
 
     // Method returns a copy
     public Optional<Flight> findFlight(int flightId) {
-        return flightsQueue.stream().filter(f -> f.getFlightId() == flightId).findFirst().map(Flight::copy);
+        int index = flightsQueue.indexOf(flightId);
+        return index < 0 ? Optional.empty() : Optional.of(materialize(index));
     }
 
-    // Method returns the reference since we are removing it
+    // Method returns the flight with the time it waited here, since we are removing it
     public Optional<Flight> removeFlight() {
-        Optional<Flight> removed = Optional.ofNullable(flightsQueue.poll());
-        removed.ifPresent(Flight::clearAssignedRunway);
-        return removed;
+        if (flightsQueue.isEmpty())
+            return Optional.empty();
+        Flight removed = build(0);
+        dequeueFirst();
+        return Optional.of(removed);
+    }
+
+    private void dequeueFirst() {
+        if (flightIndex != null)
+            flightIndex.dequeued(this, flightsQueue.getFlightId(0), dequeued);
+        flightsQueue.removeFirst();
+        dequeued++;
+        queueSize = flightsQueue.size();
+        updateSelector();
     }
 
     public boolean hasFlight(int flightId) {
-        return flightsQueue.stream().anyMatch(f -> f.getFlightId() == flightId);
+        return flightsQueue.indexOf(flightId) >= 0;
     }
 
     // Flight are copy
     public List<Flight> getQueued() {
-        return flightsQueue.stream().map(Flight::copy).collect(Collectors.toList());
+        List<Flight> flights = new ArrayList<>(flightsQueue.size());
+        for (int i = 0; i < flightsQueue.size(); i++)
+            flights.add(materialize(i));
+        return flights;
+    }
+
+    // Copy of a flight of this queue with its current position and wait time
+    public Flight getQueued(QueuedFlight queued) {
+        return materialize(getAhead(queued));
+    }
+
+    // Position in the queue, the first flight has no flights ahead
+    public int getAhead(QueuedFlight queued) {
+        return (int) (queued.getSequence() - dequeued);
+    }
+
+    // Symbol id of the airline of a flight of this queue
+    public int getAirline(QueuedFlight queued) {
+        return flightsQueue.getAirline(getAhead(queued));
+    }
+
+    // Copy of the flight with the given flights ahead, with its current position and wait time
+    private Flight materialize(int index) {
+        Flight f = build(index);
+        f.assignRunway(name, index);
+        return f;
+    }
+
+    // The flight with the time it waited so far, not assigned to any runway
+    private Flight build(int index) {
+        Flight f = new Flight(flightsQueue.getFlightId(index), symbols.name(flightsQueue.getDestination(index)),
+                symbols.name(flightsQueue.getAirline(index)), flightsQueue.getMinType(index));
+        f.increaseWaitTime(flightsQueue.getWaitTime(index) + (int) (takeOffOrders - flightsQueue.getQueuedAtOrder(index)));
+        return f;
     }
 
     @Override
@@ -108,7 +189,7 @@ public class Runway implements Serializable, Comparable<Runway> {
 
     @Override
     public int compareTo(Runway o) {
-        int compQueue = flightsQueue.size() - o.flightsQueue.size();
+        int compQueue = queueSize - o.queueSize;
         int compType = type.value.compareTo(o.type.value);
         int compName = name.compareTo(o.name);
         return compQueue == 0 ? (compType == 0 ? compName : compType) : compQueue;
@@ -0,0 +1,158 @@
+package ar.edu.itba.pod.server.model;
+
+import ar.edu.itba.pod.api.model.RunwayType;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+// Index used to pick the best runway for a flight without going through every runway.
+// There is one min-heap per runway type and state (open or closed), ordered by (queue size, name). Since a runway can take
+// any flight of its type or lower, the best runway is the smallest of the heads of the heaps of types >= the flight's type,
+// compared the same way as Runway::compareTo, so picking is O(types) and updating is O(log R), both without allocations.
+// Runways update it themselves (with their lock held) whenever their queue size or state changes.
+public class RunwaySelector implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final RunwayType[] TYPES = RunwayType.values();
+
+    private final Heap[] open = new Heap[TYPES.length];
+    private final Heap[] closed = new Heap[TYPES.length];
+
+    public RunwaySelector() {
+        for (int i = 0; i < TYPES.length; i++) {
+            open[i] = new Heap();
+            closed[i] = new Heap();
+        }
+    }
+
+    public synchronized void add(Runway r) {
+        r.selector = this;
+        r.selectorKey = r.getQueueSize();
+        r.selectorOpen = r.isOpen();
+        heapOf(r).add(r);
+    }
+
+    // Called by the runway after any change in its queue size or state
+    synchronized void update(Runway r) {
+        if (r.selectorOpen != r.isOpen()) {
+            heapOf(r).remove(r);
+            r.selectorOpen = r.isOpen();
+            r.selectorKey = r.getQueueSize();
+            heapOf(r).add(r);
+        } else if (r.selectorKey != r.getQueueSize()) {
+            r.selectorKey = r.getQueueSize();
+            heapOf(r).fix(r);
+        }
+    }
+
+    // Best runway for a flight of the given type, or null if there is none
+    public synchronized Runway best(RunwayType minType, boolean includeClosed) {
+        return best(minType, includeClosed, null);
+    }
+
+    // Same as above, but never the excluded runway (null excludes none)
+    public synchronized Runway best(RunwayType minType, boolean includeClosed, Runway excluded) {
+        Runway best = null;
+        for (int t = minType.ordinal(); t < TYPES.length; t++) {
+            best = min(best, open[t].peek(excluded));
+            if (includeClosed)
+                best = min(best, closed[t].peek(excluded));
+        }
+        return best;
+    }
+
+    private Heap heapOf(Runway r) {
+        return (r.selectorOpen ? open : closed)[r.getType().ordinal()];
+    }
+
+    private static Runway min(Runway a, Runway b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        return compare(a, b) <= 0 ? a : b;
+    }
+
+    // Same order as Runway::compareTo but using the indexed queue size
+    private static int compare(Runway a, Runway b) {
+        if (a.selectorKey != b.selectorKey)
+            return Integer.compare(a.selectorKey, b.selectorKey);
+        if (a.getType() != b.getType())
+            return a.getType().compareTo(b.getType());
+        return a.getName().compareTo(b.getName());
+    }
+
+    // Binary min-heap that keeps each runway's position in the runway itself, so it can be fixed in place
+    private static class Heap implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Runway[] runways = new Runway[4];
+        private int size = 0;
+
+        // If the head is excluded the next smallest is one of its children
+        Runway peek(Runway excluded) {
+            if (size == 0)
+                return null;
+            if (runways[0] != excluded)
+                return runways[0];
+            return min(size > 1 ? runways[1] : null, size > 2 ? runways[2] : null);
+        }
+
+        void add(Runway r) {
+            if (size == runways.length)
+                runways = Arrays.copyOf(runways, size * 2);
+            runways[size] = r;
+            r.selectorIndex = size++;
+            siftUp(r.selectorIndex);
+        }
+
+        void remove(Runway r) {
+            int i = r.selectorIndex;
+            Runway last = runways[--size];
+            runways[size] = null;
+            r.selectorIndex = -1;
+            if (i == size)
+                return;
+            runways[i] = last;
+            last.selectorIndex = i;
+            fix(last);
+        }
+
+        void fix(Runway r) {
+            siftUp(r.selectorIndex);
+            siftDown(r.selectorIndex);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (compare(runways[i], runways[parent]) >= 0)
+                    return;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && compare(runways[left], runways[smallest]) < 0)
+                    smallest = left;
+                if (right < size && compare(runways[right], runways[smallest]) < 0)
+                    smallest = right;
+                if (smallest == i)
+                    return;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            Runway aux = runways[i];
+            runways[i] = runways[j];
+            runways[j] = aux;
+            runways[i].selectorIndex = i;
+            runways[j].selectorIndex = j;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ar.edu.itba.pod.server.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns the strings of the airport (destinations, airlines and runway names) as small ints, so queued flights and
+// departures keep ids and each distinct string is kept once, no matter how many flights use it. Strings are only
+// resolved again when a response or notification is built. Ids never change and finding one takes no lock
+public class SymbolTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    // Written before the id is published in ids, so whoever has an id can read its string
+    private volatile String[] names = new String[16];
+    // Guarded by this
+    private int size = 0;
+
+    public void attach(Runway r) {
+        r.symbols = this;
+        r.symbol = id(r.getName());
+    }
+
+    // Id of the string, interning it if it is new. Null is -1
+    public int id(String s) {
+        if (s == null)
+            return -1;
+        Integer id = ids.get(s);
+        return id != null ? id : add(s);
+    }
+
+    // Id of the string if it was ever interned, -1 otherwise (and for null)
+    public int find(String s) {
+        Integer id = s == null ? null : ids.get(s);
+        return id != null ? id : -1;
+    }
+
+    public String name(int id) {
+        return id < 0 ? null : names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private synchronized int add(String s) {
+        Integer id = ids.get(s);
+        if (id != null)
+            return id;
+        if (size == names.length)
+            names = Arrays.copyOf(names, size * 2);
+        names[size] = s;
+        ids.put(s, size);
+        return size++;
+    }
+}
@@ -0,0 +1,348 @@
+package ar.edu.itba.pod.server.notifications;
+
+import ar.edu.itba.pod.api.model.FlightEvent;
+import ar.edu.itba.pod.server.metrics.CallbackEvent;
+import ar.edu.itba.pod.server.metrics.FlightRecorderEvents;
+import ar.edu.itba.pod.server.metrics.NotificationsMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Delivers the tracking events to the subscribers. Each subscriber has its own bounded mailbox, drained by at most one
+// worker at a time, so it gets its events in the same order they were published and a fixed amount of workers serves
+// every subscriber. An update of a flight replaces the previous one still waiting in the mailbox (only the latest ahead
+// matters), so a slow subscriber gets fewer calls instead of an ever growing backlog.
+// The events of an operation are published together, so a batch subscriber gets all of them in a single call.
+// A subscriber whose calls take too long is moved to a separate, smaller pool of workers, so slow subscribers only delay
+// each other, and one that fails too many times in a row is evicted (its events are dropped from then on).
+// The time a call may take is RMI's sun.rmi.transport.tcp.responseTimeout, set by the server for the whole JVM: RMI has
+// no timeout per call, and the callbacks are the only remote calls the server makes
+public class NotificationDispatcher implements NotificationsMXBean {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+    // Events delivered to a subscriber before letting the worker go to other mailboxes
+    private static final int BURST = 64;
+    // Subscribers whose slowness or failures are remembered once their mailbox is retired, the oldest are forgotten
+    private static final int MAX_STANDINGS = 4096;
+
+    private final ExecutorService workers;
+    private final ExecutorService slowWorkers;
+    private final int mailboxCapacity;
+    private final long slowCallMillis;
+    private final int maxFailures;
+    // Told about every evicted subscriber, so it stops publishing to it
+    private final Consumer<Subscriber> evictionListener;
+    private final Map<Subscriber, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    // Guarded by itself. Only subscribers that were slow or whose last call failed
+    private final Map<Subscriber, Standing> standings = new LinkedHashMap<Subscriber, Standing>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Subscriber, Standing> eldest) {
+            return size() > MAX_STANDINGS;
+        }
+    };
+
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong coalescedEvents = new AtomicLong();
+    private final AtomicLong deliveredEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong slowSubscribers = new AtomicLong();
+    private final AtomicLong evictedSubscribers = new AtomicLong();
+
+    public NotificationDispatcher(int workers, int slowWorkers, int mailboxCapacity, long slowCallMillis, int maxFailures,
+                                  Consumer<Subscriber> evictionListener) {
+        this.workers = Executors.newFixedThreadPool(workers);
+        this.slowWorkers = Executors.newFixedThreadPool(slowWorkers);
+        this.mailboxCapacity = mailboxCapacity;
+        this.slowCallMillis = slowCallMillis;
+        this.maxFailures = maxFailures;
+        this.evictionListener = evictionListener;
+    }
+
+    // Events of a single operation, in order, each one for the subscribers of its flight. Returns how many events had
+    // at least one subscriber
+    public int publish(List<FlightEvent> events, Function<FlightEvent, Collection<Subscriber>> subscribersOf) {
+        Set<Mailbox> touched = new LinkedHashSet<>();
+        int notified = 0;
+        for (FlightEvent event : events) {
+            Collection<Subscriber> subscribers = subscribersOf.apply(event);
+            if (!subscribers.isEmpty())
+                notified++;
+            for (Subscriber s : subscribers) {
+                // A mailbox is retired when it empties, then a new one takes its place
+                Mailbox mailbox = null;
+                while (mailbox == null) {
+                    mailbox = mailboxes.computeIfAbsent(s, Mailbox::new);
+                    if (!mailbox.offer(event))
+                        mailbox = null;
+                }
+                touched.add(mailbox);
+            }
+        }
+        // Only now, so the worker finds every event of the operation
+        touched.forEach(Mailbox::schedule);
+        return notified;
+    }
+
+    // Stops taking events and waits for the ones already published to be delivered
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        workers.shutdown();
+        boolean terminated = workers.awaitTermination(timeout, unit);
+        // Only now, since a mailbox may move to the slow workers while the others finish
+        slowWorkers.shutdown();
+        return slowWorkers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) && terminated;
+    }
+
+    @Override
+    public long getPublishedEvents() {
+        return publishedEvents.get();
+    }
+
+    @Override
+    public long getCoalescedEvents() {
+        return coalescedEvents.get();
+    }
+
+    @Override
+    public long getDeliveredEvents() {
+        return deliveredEvents.get();
+    }
+
+    @Override
+    public long getPendingEvents() {
+        long pending = 0;
+        for (Mailbox m : mailboxes.values())
+            pending += m.size();
+        return pending;
+    }
+
+    // Events never delivered, because the mailbox was full or the subscriber was evicted
+    @Override
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    @Override
+    public long getFailedCalls() {
+        return failedCalls.get();
+    }
+
+    @Override
+    public long getSlowSubscribers() {
+        return slowSubscribers.get();
+    }
+
+    @Override
+    public long getEvictedSubscribers() {
+        return evictedSubscribers.get();
+    }
+
+    // A pending event, replaced in place when coalescing
+    private static class Entry {
+        FlightEvent event;
+
+        Entry(FlightEvent event) {
+            this.event = event;
+        }
+    }
+
+    // What a retired mailbox leaves behind for the next one of the same subscriber
+    private static class Standing {
+        final boolean slow;
+        final int failures;
+
+        Standing(boolean slow, int failures) {
+            this.slow = slow;
+            this.failures = failures;
+        }
+    }
+
+    private class Mailbox implements Runnable {
+        private final Subscriber subscriber;
+        // Guarded by this
+        private final Queue<Entry> pending = new ArrayDeque<>();
+        // Pending update of each flight that is still its last pending event, so a new update can replace it
+        private final Map<Integer, Entry> lastUpdates = new HashMap<>();
+        private boolean scheduled = false;
+        private boolean retired = false;
+        private boolean evicted = false;
+        // Only changed by the worker draining the mailbox
+        private volatile boolean slow;
+        private int failures;
+
+        Mailbox(Subscriber subscriber) {
+            this.subscriber = subscriber;
+            Standing standing;
+            synchronized (standings) {
+                standing = standings.remove(subscriber);
+            }
+            slow = standing != null && standing.slow;
+            failures = standing == null ? 0 : standing.failures;
+        }
+
+        // False if the mailbox was retired and the event must go to a new one
+        synchronized boolean offer(FlightEvent event) {
+            if (retired)
+                return false;
+            publishedEvents.incrementAndGet();
+            if (evicted) {
+                droppedEvents.incrementAndGet();
+                return true;
+            }
+            boolean update = event.getType() == FlightEvent.Type.UPDATED;
+            if (update) {
+                Entry last = lastUpdates.get(event.getFlightId());
+                if (last != null) {
+                    last.event = event;
+                    coalescedEvents.incrementAndGet();
+                    return true;
+                }
+            }
+            if (pending.size() >= mailboxCapacity) {
+                droppedEvents.incrementAndGet();
+                logger.warn("Dropping event of flight " + event.getFlightId() + ", the mailbox of a tracker is full.");
+                return true;
+            }
+            Entry entry = new Entry(event);
+            pending.add(entry);
+            if (update)
+                lastUpdates.put(event.getFlightId(), entry);
+            else
+                lastUpdates.remove(event.getFlightId());
+            return true;
+        }
+
+        synchronized int size() {
+            return pending.size();
+        }
+
+        synchronized void schedule() {
+            if (!scheduled && !pending.isEmpty()) {
+                scheduled = true;
+                executor().execute(this);
+            }
+        }
+
+        private ExecutorService executor() {
+            return slow ? slowWorkers : workers;
+        }
+
+        // Null when there is nothing left (and the mailbox is retired) or when the worker must go serve other mailboxes
+        private synchronized List<FlightEvent> next(boolean yield) {
+            if (pending.isEmpty() || evicted) {
+                scheduled = false;
+                retired = true;
+                // Before leaving the map, so a new mailbox of the subscriber starts where this one ended
+                if ((slow || failures > 0) && !evicted) {
+                    synchronized (standings) {
+                        standings.put(subscriber, new Standing(slow, failures));
+                    }
+                }
+                mailboxes.remove(subscriber, this);
+                return null;
+            }
+            if (yield && !executor().isShutdown()) {
+                executor().execute(this);
+                return null;
+            }
+            List<FlightEvent> batch = new ArrayList<>(Math.min(pending.size(), subscriber.batchSize()));
+            while (!pending.isEmpty() && batch.size() < subscriber.batchSize()) {
+                Entry entry = pending.poll();
+                lastUpdates.remove(entry.event.getFlightId(), entry);
+                batch.add(entry.event);
+            }
+            return batch;
+        }
+
+        @Override
+        public void run() {
+            boolean drained = false;
+            try {
+                drain();
+                drained = true;
+            } finally {
+                // Something unexpected got out, the mailbox must not stay scheduled with nobody draining it
+                if (!drained)
+                    release();
+            }
+        }
+
+        private void release() {
+            synchronized (this) {
+                scheduled = false;
+            }
+            schedule();
+        }
+
+        private void drain() {
+            List<FlightEvent> batch;
+            for (int delivered = 0; (batch = next(delivered >= BURST)) != null; delivered += batch.size()) {
+                long start = System.nanoTime();
+                CallbackEvent event = FlightRecorderEvents.beginCallback();
+                try {
+                    subscriber.deliver(batch);
+                    deliveredEvents.addAndGet(batch.size());
+                    failures = 0;
+                    delivered(event, batch, false);
+                } catch (RemoteException | RuntimeException e) {
+                    // A runtime exception (e.g. a callback that can't be unmarshalled) is a failed call too
+                    delivered(event, batch, true);
+                    failedCalls.incrementAndGet();
+                    logger.warn("Could not notify tracker of flight " + batch.get(0).getFlightId() + ": " + e);
+                    if (++failures >= maxFailures) {
+                        evict();
+                        return;
+                    }
+                }
+                if (!slow && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= slowCallMillis) {
+                    // The rest of its events go through the slow workers
+                    slow = true;
+                    slowSubscribers.incrementAndGet();
+                    logger.warn("Tracker of flight " + batch.get(0).getFlightId() + " is slow, moving it to the slow workers.");
+                    delivered = BURST;
+                }
+            }
+        }
+
+        private void delivered(CallbackEvent event, List<FlightEvent> batch, boolean failed) {
+            if (event == null)
+                return;
+            event.flightId = batch.get(0).getFlightId();
+            event.events = batch.size();
+            event.failed = failed;
+            event.commit();
+        }
+
+        private void evict() {
+            synchronized (this) {
+                evicted = true;
+                droppedEvents.addAndGet(pending.size());
+                pending.clear();
+                lastUpdates.clear();
+            }
+            evictedSubscribers.incrementAndGet();
+            logger.warn("Evicting tracker after " + failures + " failed calls in a row.");
+            evictionListener.accept(subscriber);
+            // Retires the mailbox
+            next(false);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ar.edu.itba.pod.server.notifications;
+
+import ar.edu.itba.pod.api.callbacks.FlightEventBatchCallback;
+import ar.edu.itba.pod.api.callbacks.FlightEventCallback;
+import ar.edu.itba.pod.api.model.FlightEvent;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+// A tracking callback, of either kind. Two subscribers are equal if they have the same callback, so a client that tracks
+// several flights with the same callback has a single mailbox
+public abstract class Subscriber {
+    private final Remote callback;
+
+    private Subscriber(Remote callback) {
+        this.callback = callback;
+    }
+
+    public static Subscriber of(FlightEventCallback callback) {
+        return new Subscriber(callback) {
+            @Override
+            void deliver(List<FlightEvent> events) throws RemoteException {
+                for (FlightEvent e : events) {
+                    switch (e.getType()) {
+                        case ASSIGNED:
+                            callback.flightAssigned(e.getFlightId(), e.getDestCode(), e.getRunway(), e.getFlightsAhead());
+                            break;
+                        case UPDATED:
+                            callback.flightUpdated(e.getFlightId(), e.getDestCode(), e.getRunway(), e.getFlightsAhead());
+                            break;
+                        case DEPARTED:
+                            callback.flightDeparted(e.getFlightId(), e.getDestCode(), e.getRunway());
+                            break;
+                    }
+                }
+            }
+
+            @Override
+            int batchSize() {
+                return 1;
+            }
+        };
+    }
+
+    public static Subscriber of(FlightEventBatchCallback callback) {
+        return new Subscriber(callback) {
+            @Override
+            void deliver(List<FlightEvent> events) throws RemoteException {
+                callback.flightEvents(events);
+            }
+
+            @Override
+            int batchSize() {
+                return Integer.MAX_VALUE;
+            }
+        };
+    }
+
+    abstract void deliver(List<FlightEvent> events) throws RemoteException;
+
+    // Most events given to deliver at once
+    abstract int batchSize();
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Subscriber && callback.equals(((Subscriber) o).callback);
+    }
+
+    @Override
+    public int hashCode() {
+        return callback.hashCode();
+    }
+}
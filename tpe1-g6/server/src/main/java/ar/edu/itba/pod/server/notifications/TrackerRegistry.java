@@ -0,0 +1,60 @@
+package ar.edu.itba.pod.server.notifications;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Subscribers of each tracked flight. Subscriptions are few and rarely change compared to how often they are read, so each
+// flight has an array that is copied on every change: reading is a single lookup, without locks, and never blocks (or is
+// blocked by) the airport. A flight is removed when its departure is published, so only queued flights are kept
+public class TrackerRegistry {
+    private static final Subscriber[] NONE = new Subscriber[0];
+
+    private final Map<Integer, Subscriber[]> trackers = new ConcurrentHashMap<>();
+
+    public void add(int flightId, Subscriber subscriber) {
+        trackers.compute(flightId, (id, subscribers) -> {
+            if (subscribers == null)
+                return new Subscriber[]{subscriber};
+            // Registering the same callback again changes nothing
+            if (Arrays.asList(subscribers).contains(subscriber))
+                return subscribers;
+            Subscriber[] added = Arrays.copyOf(subscribers, subscribers.length + 1);
+            added[subscribers.length] = subscriber;
+            return added;
+        });
+    }
+
+    public List<Subscriber> get(int flightId) {
+        return Collections.unmodifiableList(Arrays.asList(trackers.getOrDefault(flightId, NONE)));
+    }
+
+    // Removes every subscription of the flight, returning them
+    public List<Subscriber> remove(int flightId) {
+        Subscriber[] removed = trackers.remove(flightId);
+        return removed == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(removed));
+    }
+
+    // Removes the subscriber from every flight it tracks
+    public void remove(Subscriber subscriber) {
+        for (Integer flightId : trackers.keySet()) {
+            trackers.computeIfPresent(flightId, (id, subscribers) -> {
+                Subscriber[] kept = Arrays.stream(subscribers).filter(s -> !s.equals(subscriber)).toArray(Subscriber[]::new);
+                return kept.length == 0 ? null : kept;
+            });
+        }
+    }
+
+    // Ids of the tracked flights, a live view
+    public Set<Integer> getTrackedFlights() {
+        return Collections.unmodifiableSet(trackers.keySet());
+    }
+
+    // Amount of tracked flights
+    public int size() {
+        return trackers.size();
+    }
+}
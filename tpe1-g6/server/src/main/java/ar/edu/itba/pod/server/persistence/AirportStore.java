@@ -0,0 +1,198 @@
+package ar.edu.itba.pod.server.persistence;
+
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.api.model.RunwayType;
+import ar.edu.itba.pod.server.model.Airport;
+import ar.edu.itba.pod.server.model.DepartureLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Keeps the airport on disk as a snapshot plus the journal of changes made after it, and is the journal the servant appends to.
+// Files are numbered by generation: snapshot-N has the state before any record of journal-N, and journals of later
+// generations follow it. Recovering loads the newest snapshot and replays every journal from its generation on
+public class AirportStore implements Journal, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(AirportStore.class);
+    private static final String SNAPSHOT = "snapshot-";
+    // Written before the airport. Changes to the serialized classes that old snapshots can't be read into must bump it
+    private static final int SNAPSHOT_VERSION = 3;
+    private static final String JOURNAL = "journal-";
+    private static final String DEPARTURES = "departures";
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final long fsyncIntervalMillis;
+    private final long snapshotEvery;
+
+    // Only replaced with exclusive access to the airport (see snapshot), volatile for the threads that sync afterwards
+    private volatile FileJournal journal;
+    private long generation;
+    private final AtomicLong recordsSinceSnapshot = new AtomicLong();
+
+    public AirportStore(Path directory, FsyncPolicy policy, long fsyncIntervalMillis, long snapshotEvery) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.policy = policy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.snapshotEvery = snapshotEvery;
+    }
+
+    // Rebuilds the airport from disk (an empty one if there is nothing) and starts a new journal for the changes to come
+    public Airport recover() throws IOException {
+        OptionalLong snapshotGeneration = generations(SNAPSHOT).stream().mapToLong(Long::longValue).max();
+        // Departures are kept in segment files next to the journal, snapshots only reference them
+        Airport airport = snapshotGeneration.isPresent() ? readSnapshot(snapshotGeneration.getAsLong())
+                : new Airport(new DepartureLog(directory.resolve(DEPARTURES)));
+        long from = snapshotGeneration.orElse(0);
+
+        JournalReplayer replayer = new JournalReplayer(airport);
+        long replayed = 0;
+        long last = from;
+        for (long g : generations(JOURNAL)) {
+            if (g < from)
+                continue;
+            replayed += replayer.replay(file(JOURNAL, g));
+            last = Math.max(last, g);
+        }
+        logger.info("Recovered airport from generation " + from + " replaying " + replayed + " journal records.");
+
+        // A new generation, so a record cut in half at the end of the last journal is never followed by new ones
+        generation = last + 1;
+        journal = new FileJournal(file(JOURNAL, generation), policy, fsyncIntervalMillis, 0);
+        recordsSinceSnapshot.set(replayed);
+        return airport;
+    }
+
+    @Override
+    public long runwayAdded(String name, RunwayType type) {
+        return counted(journal.runwayAdded(name, type));
+    }
+
+    @Override
+    public long runwayOpened(String name) {
+        return counted(journal.runwayOpened(name));
+    }
+
+    @Override
+    public long runwayClosed(String name) {
+        return counted(journal.runwayClosed(name));
+    }
+
+    @Override
+    public long flightQueued(String runway, Flight flight) {
+        return counted(journal.flightQueued(runway, flight));
+    }
+
+    @Override
+    public long tookOff(String runway) {
+        return counted(journal.tookOff(runway));
+    }
+
+    @Override
+    public long tookOffRounds(int rounds) {
+        return counted(journal.tookOffRounds(rounds));
+    }
+
+    @Override
+    public long reordered() {
+        return counted(journal.reordered());
+    }
+
+    @Override
+    public long runwayReordered(String name) {
+        return counted(journal.runwayReordered(name));
+    }
+
+    // Positions keep growing across generations, and closing a journal flushes it, so a position of an older generation
+    // is already durable for the current journal
+    @Override
+    public void sync(long position) throws IOException {
+        journal.sync(position);
+    }
+
+    public boolean snapshotDue() {
+        return recordsSinceSnapshot.get() >= snapshotEvery;
+    }
+
+    // Writes the whole airport and drops the files it makes unnecessary. Nothing can change the airport (or append to the
+    // journal) meanwhile, it's up to the caller to make sure of that
+    public void snapshot(Airport airport) throws IOException {
+        // Every record so far goes to the old generation, the snapshot has the state before the new one
+        journal.close();
+        long next = generation + 1;
+        journal = new FileJournal(file(JOURNAL, next), policy, fsyncIntervalMillis, journal.getAppended());
+        generation = next;
+
+        Path tmp = directory.resolve(SNAPSHOT + next + ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeObject(airport);
+        }
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmp, file(SNAPSHOT, next), StandardCopyOption.ATOMIC_MOVE);
+        recordsSinceSnapshot.set(0);
+
+        for (long g : generations(SNAPSHOT))
+            if (g < next)
+                Files.deleteIfExists(file(SNAPSHOT, g));
+        for (long g : generations(JOURNAL))
+            if (g < next)
+                Files.deleteIfExists(file(JOURNAL, g));
+        logger.info("Snapshot of generation " + next + " written.");
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (journal != null)
+            journal.close();
+    }
+
+    private long counted(long position) {
+        recordsSinceSnapshot.incrementAndGet();
+        return position;
+    }
+
+    private Airport readSnapshot(long g) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(file(SNAPSHOT, g))))) {
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION)
+                throw new IOException("Snapshot " + g + " has format " + version + ", expected " + SNAPSHOT_VERSION);
+            return (Airport) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Invalid snapshot " + g, e);
+        }
+    }
+
+    private Path file(String prefix, long g) {
+        return directory.resolve(prefix + g + (prefix.equals(SNAPSHOT) ? ".bin" : ".log"));
+    }
+
+    // Generations with a complete file of the given kind, in order
+    private List<Long> generations(String prefix) throws IOException {
+        String suffix = prefix.equals(SNAPSHOT) ? ".bin" : ".log";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(prefix) && n.endsWith(suffix))
+                    .map(n -> Long.parseLong(n.substring(prefix.length(), n.length() - suffix.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
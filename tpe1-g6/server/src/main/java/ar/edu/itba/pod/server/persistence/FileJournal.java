@@ -0,0 +1,237 @@
+package ar.edu.itba.pod.server.persistence;
+
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.api.model.RunwayType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Binary append only journal file. Each record is [int length][body][int crc32 of body], where the body starts with the
+// record type. Appends go to an in-memory buffer and a single flusher thread writes everything buffered with one write
+// (and one fsync, depending on the policy), so concurrent operations share the cost of the disk (group commit)
+public class FileJournal implements Journal, Closeable {
+    static final byte RUNWAY_ADDED = 1;
+    static final byte RUNWAY_OPENED = 2;
+    static final byte RUNWAY_CLOSED = 3;
+    static final byte FLIGHT_QUEUED = 4;
+    static final byte TOOK_OFF = 5;
+    static final byte REORDERED = 6;
+    static final byte RUNWAY_REORDERED = 7;
+    static final byte TOOK_OFF_ROUNDS = 8;
+    // No record gets close: the biggest has three strings, of at most 64KB each
+    static final int MAX_RECORD = 1 << 20;
+
+    private final FileChannel channel;
+    private final FsyncPolicy policy;
+    private final long fsyncIntervalMillis;
+    private final Thread flusher;
+
+    // Guarded by this
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private ByteArrayOutputStream writing = new ByteArrayOutputStream();
+    private long appended;
+    private long flushed;
+    private IOException failure;
+    private boolean closed = false;
+
+    // Positions of the records start after the given one
+    public FileJournal(Path file, FsyncPolicy policy, long fsyncIntervalMillis, long lastPosition) throws IOException {
+        this.appended = lastPosition;
+        this.flushed = lastPosition;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.policy = policy;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public long runwayAdded(String name, RunwayType type) {
+        return append(RUNWAY_ADDED, out -> {
+            out.writeUTF(name);
+            out.writeByte(type.ordinal());
+        });
+    }
+
+    @Override
+    public long runwayOpened(String name) {
+        return append(RUNWAY_OPENED, out -> out.writeUTF(name));
+    }
+
+    @Override
+    public long runwayClosed(String name) {
+        return append(RUNWAY_CLOSED, out -> out.writeUTF(name));
+    }
+
+    @Override
+    public long flightQueued(String runway, Flight flight) {
+        return append(FLIGHT_QUEUED, out -> {
+            out.writeUTF(runway);
+            out.writeInt(flight.getFlightId());
+            out.writeUTF(flight.getDestCode());
+            out.writeUTF(flight.getAirline());
+            out.writeByte(flight.getMinType().ordinal());
+        });
+    }
+
+    @Override
+    public long tookOff(String runway) {
+        return append(TOOK_OFF, out -> out.writeUTF(runway));
+    }
+
+    @Override
+    public long tookOffRounds(int rounds) {
+        return append(TOOK_OFF_ROUNDS, out -> out.writeInt(rounds));
+    }
+
+    @Override
+    public long reordered() {
+        return append(REORDERED, out -> {});
+    }
+
+    @Override
+    public long runwayReordered(String name) {
+        return append(RUNWAY_REORDERED, out -> out.writeUTF(name));
+    }
+
+    public synchronized long getAppended() {
+        return appended;
+    }
+
+    @Override
+    public void sync(long position) throws IOException {
+        synchronized (this) {
+            if (policy == FsyncPolicy.ALWAYS) {
+                boolean interrupted = false;
+                while (flushed < position && failure == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted)
+                    Thread.currentThread().interrupt();
+            }
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    // Waits for every appended record to be written and forced, then closes the file
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+        synchronized (this) {
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private long append(byte type, RecordWriter writer) {
+        byte[] body;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            writer.write(out);
+            out.flush();
+            body = bytes.toByteArray();
+        } catch (IOException e) {
+            // Writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        synchronized (this) {
+            if (closed)
+                throw new IllegalStateException("Journal is closed");
+            DataOutputStream out = new DataOutputStream(pending);
+            try {
+                out.writeInt(body.length);
+                out.write(body);
+                out.writeInt((int) crc.getValue());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            notifyAll();
+            return ++appended;
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long upTo;
+            ByteArrayOutputStream toWrite;
+            synchronized (this) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Only close stops the flusher, so nothing appended is lost
+                    }
+                }
+                if (pending.size() == 0)
+                    return;
+                // Swapping buffers lets operations keep appending while we write
+                toWrite = pending;
+                pending = writing;
+                writing = toWrite;
+                upTo = appended;
+            }
+
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(toWrite.toByteArray());
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                if (policy != FsyncPolicy.NEVER)
+                    channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this) {
+                toWrite.reset();
+                flushed = upTo;
+                notifyAll();
+            }
+
+            if (policy == FsyncPolicy.INTERVAL) {
+                try {
+                    Thread.sleep(fsyncIntervalMillis);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+}
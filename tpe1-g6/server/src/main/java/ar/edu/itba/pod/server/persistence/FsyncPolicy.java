@@ -0,0 +1,24 @@
+package ar.edu.itba.pod.server.persistence;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+// When the journal forces its records to disk
+public enum FsyncPolicy {
+    // Every operation waits until its record is on disk (records of concurrent operations share the same fsync)
+    ALWAYS("always"),
+    // Records are forced every few milliseconds, operations don't wait (the last interval can be lost)
+    INTERVAL("interval"),
+    // Records are only written, the OS decides when they reach the disk
+    NEVER("never");
+
+    public final String value;
+
+    FsyncPolicy(final String value) {
+        this.value = value;
+    }
+
+    public static Optional<FsyncPolicy> getEnumOf(String value) {
+        return Arrays.stream(values()).filter(p -> p.value.equals(value)).findFirst();
+    }
+}
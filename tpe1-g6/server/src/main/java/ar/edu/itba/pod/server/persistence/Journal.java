@@ -0,0 +1,74 @@
+package ar.edu.itba.pod.server.persistence;
+
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.api.model.RunwayType;
+
+import java.io.IOException;
+
+// Log of every change made to the airport, so it can be rebuilt after a restart.
+// Records of the same runway must be appended in the same order they are applied (i.e. with the runway lock held), and the
+// ones that change the whole airport (adding runways and reorders) with exclusive access to it.
+// Appending only buffers the record, sync must be called (without holding any lock) before answering the operation
+public interface Journal {
+    // Used when the server runs without persistence
+    Journal NONE = new Journal() {
+        @Override
+        public long runwayAdded(String name, RunwayType type) {
+            return 0;
+        }
+
+        @Override
+        public long runwayOpened(String name) {
+            return 0;
+        }
+
+        @Override
+        public long runwayClosed(String name) {
+            return 0;
+        }
+
+        @Override
+        public long flightQueued(String runway, Flight flight) {
+            return 0;
+        }
+
+        @Override
+        public long tookOff(String runway) {
+            return 0;
+        }
+
+        @Override
+        public long tookOffRounds(int rounds) {
+            return 0;
+        }
+
+        @Override
+        public long reordered() {
+            return 0;
+        }
+
+        @Override
+        public long runwayReordered(String name) {
+            return 0;
+        }
+
+        @Override
+        public void sync(long position) {
+        }
+    };
+
+    // Every append returns the position of the record, to be used with sync
+    long runwayAdded(String name, RunwayType type);
+    long runwayOpened(String name);
+    long runwayClosed(String name);
+    long flightQueued(String runway, Flight flight);
+    // Take off order received by a single runway (it's recorded even if the runway is closed or empty, flights waited anyway)
+    long tookOff(String runway);
+    // Take off orders received by every runway, the given amount of times
+    long tookOffRounds(int rounds);
+    long reordered();
+    long runwayReordered(String name);
+
+    // Waits until the record in the position is as durable as the fsync policy promises
+    void sync(long position) throws IOException;
+}
@@ -0,0 +1,100 @@
+package ar.edu.itba.pod.server.persistence;
+
+import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.api.model.RunwayType;
+import ar.edu.itba.pod.server.model.Airport;
+import ar.edu.itba.pod.server.model.Runway;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+// Applies the records of a journal file to an airport, in the same order they were appended
+public class JournalReplayer {
+    private static final RunwayType[] TYPES = RunwayType.values();
+
+    private final Airport airport;
+
+    public JournalReplayer(Airport airport) {
+        this.airport = airport;
+    }
+
+    // Returns the amount of records applied. A record cut in half (or corrupted) at the end of the file means the server
+    // stopped while writing it, so it was never confirmed to anyone and replaying stops there. So does a corrupted length,
+    // checked before allocating the body
+    public long replay(Path file) throws IOException {
+        long applied = 0;
+        long remaining = Files.size(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte[] body;
+                int crc;
+                try {
+                    int length = in.readInt();
+                    remaining -= Integer.BYTES;
+                    if (length <= 0 || length > FileJournal.MAX_RECORD || length + Integer.BYTES > remaining)
+                        return applied;
+                    body = new byte[length];
+                    in.readFully(body);
+                    crc = in.readInt();
+                    remaining -= length + Integer.BYTES;
+                } catch (EOFException e) {
+                    return applied;
+                }
+                CRC32 expected = new CRC32();
+                expected.update(body, 0, body.length);
+                if ((int) expected.getValue() != crc)
+                    return applied;
+
+                apply(new DataInputStream(new ByteArrayInputStream(body)));
+                applied++;
+            }
+        }
+    }
+
+    private void apply(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case FileJournal.RUNWAY_ADDED: {
+                String name = in.readUTF();
+                airport.addRunway(new Runway(name, TYPES[in.readByte()]));
+                break;
+            }
+            case FileJournal.RUNWAY_OPENED:
+                runway(in.readUTF()).openRunway();
+                break;
+            case FileJournal.RUNWAY_CLOSED:
+                runway(in.readUTF()).closeRunway();
+                break;
+            case FileJournal.FLIGHT_QUEUED: {
+                Runway r = runway(in.readUTF());
+                r.addFlightToQueue(new Flight(in.readInt(), in.readUTF(), in.readUTF(), TYPES[in.readByte()]));
+                break;
+            }
+            case FileJournal.TOOK_OFF:
+                runway(in.readUTF()).makeDeparture();
+                break;
+            case FileJournal.TOOK_OFF_ROUNDS:
+                airport.takeOffOrders(in.readInt(), new ArrayList<>());
+                break;
+            case FileJournal.REORDERED:
+                airport.reorderRunways(new ArrayList<>());
+                break;
+            case FileJournal.RUNWAY_REORDERED:
+                airport.reorderRunway(runway(in.readUTF()), new ArrayList<>());
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + type);
+        }
+    }
+
+    private Runway runway(String name) throws IOException {
+        return airport.getRunway(name).orElseThrow(() -> new IOException("Journal references unknown runway " + name));
+    }
+}
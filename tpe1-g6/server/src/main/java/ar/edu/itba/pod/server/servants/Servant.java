@@ -1,268 +1,571 @@
 package ar.edu.itba.pod.server.servants;
 
+import ar.edu.itba.pod.api.callbacks.FlightEventBatchCallback;
 import ar.edu.itba.pod.api.callbacks.FlightEventCallback;
 import ar.edu.itba.pod.api.exceptions.*;
 import ar.edu.itba.pod.api.interfaces.AdminService;
 import ar.edu.itba.pod.api.interfaces.ConsultService;
 import ar.edu.itba.pod.api.interfaces.RunwayService;
 import ar.edu.itba.pod.api.interfaces.TrackingService;
+import ar.edu.itba.pod.api.model.DeparturesPage;
 import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.api.model.FlightEvent;
+import ar.edu.itba.pod.api.model.FlightList;
 import ar.edu.itba.pod.api.model.ReorderStatus;
 import ar.edu.itba.pod.api.model.RunwayType;
+import ar.edu.itba.pod.server.metrics.AirportMXBean;
+import ar.edu.itba.pod.server.metrics.Operation;
+import ar.edu.itba.pod.server.metrics.OperationEvent;
+import ar.edu.itba.pod.server.metrics.ServerMetrics;
 import ar.edu.itba.pod.server.model.Airport;
+import ar.edu.itba.pod.server.model.DepartureLog;
+import ar.edu.itba.pod.server.model.QueuedFlight;
 import ar.edu.itba.pod.server.model.Runway;
-
+import ar.edu.itba.pod.server.model.RunwaySelector;
+import ar.edu.itba.pod.server.notifications.NotificationDispatcher;
+import ar.edu.itba.pod.server.notifications.Subscriber;
+import ar.edu.itba.pod.server.notifications.TrackerRegistry;
+import ar.edu.itba.pod.server.persistence.AirportStore;
+import ar.edu.itba.pod.server.persistence.Journal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import java.io.IOException;
 import java.rmi.RemoteException;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
 public class Servant implements AdminService, ConsultService, RunwayService, TrackingService {
+    private static final Logger logger = LoggerFactory.getLogger(Servant.class);
+    private static final int MAX_PAGE_SIZE = 10000;
+    private static final int NOTIFICATION_WORKERS = 4;
+    private static final int SLOW_NOTIFICATION_WORKERS = 2;
+    private static final int MAILBOX_CAPACITY = 1024;
+    private static final long SLOW_CALL_MILLIS = 1000;
+    private static final int MAX_FAILED_CALLS = 3;
+
     private final Airport airport;
+    // Every change is appended here before answering, NONE when running without persistence (then store is null)
+    private final Journal journal;
+    private final AirportStore store;
+
+    private final TrackerRegistry trackers = new TrackerRegistry();
+    // If closing a runway moves its flights to the other runways right away
+    private boolean reorderOnClose = false;
+    private final NotificationDispatcher dispatcher = new NotificationDispatcher(NOTIFICATION_WORKERS, SLOW_NOTIFICATION_WORKERS,
+            MAILBOX_CAPACITY, SLOW_CALL_MILLIS, MAX_FAILED_CALLS, this::evicted);
 
-    private final Map<Integer, List<FlightEventCallback>> trackers;
-    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ServerMetrics metrics = new ServerMetrics();
 
-    private final ReentrantReadWriteLock reentrantLock = new ReentrantReadWriteLock(true);
-    private final Lock readLock = reentrantLock.readLock();
-    private final Lock writeLock = reentrantLock.writeLock();
+    // Airport level lock: every operation takes the read lock, only changes to the set of runways (adding or reordering)
+    // take the write lock. Queues are guarded by each runway's own lock, always taken after this one.
+    // Both sides record how long they are waited for and held
+    private final ReentrantReadWriteLock airportLock = new ReentrantReadWriteLock(true);
+    private final Lock readLock = metrics.timedReadLock(airportLock.readLock());
+    private final Lock writeLock = metrics.timedWriteLock(airportLock.writeLock());
 
     public Servant() {
         this.airport = new Airport();
-        this.trackers = new HashMap<>();
+        this.journal = Journal.NONE;
+        this.store = null;
+    }
+
+    // Durable mode: the airport is recovered from the store, which journals every change from then on
+    public Servant(AirportStore store) throws IOException {
+        this.airport = store.recover();
+        this.journal = store;
+        this.store = store;
+    }
+
+    // Must be set before exporting the servant
+    public void setReorderOnClose(boolean reorderOnClose) {
+        this.reorderOnClose = reorderOnClose;
     }
 
     public boolean awaitTermination() throws InterruptedException {
-        executor.shutdown();
-        return executor.awaitTermination(30, TimeUnit.MINUTES);
+        return dispatcher.shutdown(30, TimeUnit.MINUTES);
+    }
+
+    // Releases the segments of the departure log (and deletes them if they were temporary), the servant can't be used afterwards
+    public void close() {
+        airport.getDepartureLog().close();
     }
 
     @Override
     public void addRunway(String name, RunwayType type) throws RemoteException, RunwayAlreadyExistsException {
-        // We check if exists first (Has higher chance of quickly checking if exists without calling writeLock and stopping all other reads)
-        readLock.lock();
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.ADD_RUNWAY);
+        event.setRunway(name);
         try {
-            if(airport.runwayExists(name))
-                throw new RunwayAlreadyExistsException();
-        } finally { readLock.unlock(); }
+            // We check if exists first (Has higher chance of quickly checking if exists without calling writeLock and stopping all other reads)
+            readLock.lock();
+            try {
+                if(airport.runwayExists(name))
+                    throw new RunwayAlreadyExistsException();
+            } finally { readLock.unlock(); }
 
-        Runway newRunway = new Runway(name, type);
-        writeLock.lock();
-        try {
-            // We need to revalidate that it does not exist, so we take readLock again
-            if (airport.runwayExists(name))
-                throw new RunwayAlreadyExistsException();
-            airport.addRunway(newRunway);
-        } finally { writeLock.unlock(); }
+            Runway newRunway = new Runway(name, type);
+            long position;
+            writeLock.lock();
+            try {
+                // We need to revalidate that it does not exist, so we take readLock again
+                if (airport.runwayExists(name))
+                    throw new RunwayAlreadyExistsException();
+                airport.addRunway(newRunway);
+                position = journal.runwayAdded(name, type);
+            } finally { writeLock.unlock(); }
+            persisted(position);
+        } finally { metrics.record(Operation.ADD_RUNWAY, start, event); }
     }
 
     @Override
     public boolean isOpen(String name) throws RemoteException, RunwayNotFoundException {
-        readLock.lock();
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.IS_OPEN);
+        event.setRunway(name);
         try {
-            return airport.getRunway(name).orElseThrow(RunwayNotFoundException::new).isOpen();
-        } finally { readLock.unlock(); }
+            readLock.lock();
+            try {
+                return airport.getRunway(name).orElseThrow(RunwayNotFoundException::new).isOpen();
+            } finally { readLock.unlock(); }
+        } finally { metrics.record(Operation.IS_OPEN, start, event); }
     }
 
     @Override
     public void openRunway(String name) throws RemoteException, RunwayNotFoundException, InvalidRunwayOperationException {
-        // We try with readLock first to avoid blocking other reads
-        readLock.lock();
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.OPEN_RUNWAY);
+        event.setRunway(name);
         try {
-            if (airport.getRunway(name).orElseThrow(RunwayNotFoundException::new).isOpen())
-                throw new InvalidRunwayOperationException();
-        } finally { readLock.unlock(); }
-
-        writeLock.lock();
-        try {
-            Runway r = airport.getRunway(name).orElseThrow(RunwayNotFoundException::new);
-            if (r.isOpen())
-                throw new InvalidRunwayOperationException();
-            r.openRunway();
-        } finally { writeLock.unlock(); }
+            long position;
+            readLock.lock();
+            try {
+                Runway r = airport.getRunway(name).orElseThrow(RunwayNotFoundException::new);
+                r.getLock().lock();
+                try {
+                    if (r.isOpen())
+                        throw new InvalidRunwayOperationException();
+                    r.openRunway();
+                    position = journal.runwayOpened(name);
+                } finally { r.getLock().unlock(); }
+            } finally { readLock.unlock(); }
+            persisted(position);
+        } finally { metrics.record(Operation.OPEN_RUNWAY, start, event); }
     }
 
     @Override
     public void closeRunway(String name) throws RemoteException, RunwayNotFoundException, InvalidRunwayOperationException {
-        // We try with readLock first to avoid blocking other reads
-        readLock.lock();
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.CLOSE_RUNWAY);
+        event.setRunway(name);
         try {
-            if (!airport.getRunway(name).orElseThrow(RunwayNotFoundException::new).isOpen())
-                throw new InvalidRunwayOperationException();
-        } finally { readLock.unlock(); }
+            long position;
+            readLock.lock();
+            try {
+                Runway r = airport.getRunway(name).orElseThrow(RunwayNotFoundException::new);
+                r.getLock().lock();
+                try {
+                    if (!r.isOpen())
+                        throw new InvalidRunwayOperationException();
+                    r.closeRunway();
+                    position = journal.runwayClosed(name);
+                } finally { r.getLock().unlock(); }
+            } finally { readLock.unlock(); }
+            persisted(position);
 
-        writeLock.lock();
-        try {
-            Runway r = airport.getRunway(name).orElseThrow(RunwayNotFoundException::new);
-            if (!r.isOpen())
-                throw new InvalidRunwayOperationException();
-            r.closeRunway();
-        } finally { writeLock.unlock(); }
+            if (reorderOnClose)
+                reorderRunway(name);
+        } finally { metrics.record(Operation.CLOSE_RUNWAY, start, event); }
     }
 
     @Override
     public void takeOffOrder() throws RemoteException {
-        List<Flight> departed = new ArrayList<>();
-        writeLock.lock();
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.TAKE_OFF_ORDER);
         try {
-            airport.getRunways().stream().map(Runway::makeDeparture).filter(Optional::isPresent).map(Optional::get).forEach(departed::add);
-            // Lock downgrading to avoid issues
+            List<Flight> departed = new ArrayList<>();
+            List<Flight> updated = new ArrayList<>();
+            Set<Runway> departedFrom = new HashSet<>();
+            long position = 0;
             readLock.lock();
-        } finally { writeLock.unlock(); }
-        List<Flight> updated;
-        try {
-            updated = airport.getRunways().stream().filter(Runway::isOpen).map(Runway::getQueued).flatMap(Collection::stream).collect(Collectors.toList());
-        } finally { readLock.unlock(); }
+            try {
+                // Each runway departs under its own lock, so requests on the other runways keep going meanwhile
+                for (Runway r : airport.getRunways()) {
+                    r.getLock().lock();
+                    try {
+                        r.makeDeparture().ifPresent(f -> {
+                            departed.add(f);
+                            departedFrom.add(r);
+                        });
+                        position = journal.tookOff(r.getName());
+                    } finally { r.getLock().unlock(); }
+                }
+                // Only tracked flights get an update, so this does not depend on how many flights are queued
+                for (int flightId : trackers.getTrackedFlights())
+                    trackedPosition(flightId, departedFrom).ifPresent(updated::add);
+            } finally { readLock.unlock(); }
+            persisted(position);
+
+            List<FlightEvent> events = new ArrayList<>(departed.size() + updated.size());
+            departed.forEach(f -> events.add(new FlightEvent(FlightEvent.Type.DEPARTED, f.getFlightId(), f.getDestCode(), f.getAssignedRunway(), 0)));
+            updated.forEach(f -> events.add(event(FlightEvent.Type.UPDATED, f)));
+            event.setFlightsMoved(departed.size());
+            event.setFlightsNotified(notify(events));
+        } finally { metrics.record(Operation.TAKE_OFF_ORDER, start, event); }
+    }
 
-        departed.forEach(f -> {
-            notifyFlightDeparted(f.getFlightId(), f.getDestCode(), f.getAssignedRunway());
-        });
+    @Override
+    public void takeOffOrder(int rounds) throws RemoteException, InvalidRunwayOperationException {
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.TAKE_OFF_ROUNDS);
+        try {
+            if (rounds <= 0)
+                throw new InvalidRunwayOperationException();
+            final List<Flight> departed = new ArrayList<>();
+            final List<Flight> updated = new ArrayList<>();
+            long position;
+            // All the rounds in one exclusive section, so no runway locks are needed and nothing gets in between
+            writeLock.lock();
+            try {
+                airport.takeOffOrders(rounds, departed);
+                position = journal.tookOffRounds(rounds);
+                Set<Runway> departedFrom = new HashSet<>();
+                departed.forEach(f -> airport.getRunway(f.getAssignedRunway()).ifPresent(departedFrom::add));
+                // One update per tracked flight, with its position after the last round
+                for (int flightId : trackers.getTrackedFlights())
+                    trackedPosition(flightId, departedFrom).ifPresent(updated::add);
+            } finally { writeLock.unlock(); }
+            persisted(position);
+
+            List<FlightEvent> events = new ArrayList<>(departed.size() + updated.size());
+            departed.forEach(f -> events.add(new FlightEvent(FlightEvent.Type.DEPARTED, f.getFlightId(), f.getDestCode(), f.getAssignedRunway(), 0)));
+            updated.forEach(f -> events.add(event(FlightEvent.Type.UPDATED, f)));
+            event.setFlightsMoved(departed.size());
+            event.setFlightsNotified(notify(events));
+        } finally { metrics.record(Operation.TAKE_OFF_ROUNDS, start, event); }
+    }
 
-        updated.forEach(f -> {
-            notifyFlightUpdated(f.getFlightId(), f.getDestCode(), f.getAssignedRunway(), f.getAhead());
-        });
+    // Current position of a tracked flight if it is queued in one of the given runways (must hold the read lock)
+    private Optional<Flight> trackedPosition(int flightId, Set<Runway> runways) {
+        Optional<QueuedFlight> queued = airport.getFlightIndex().get(flightId);
+        if (!queued.isPresent() || !runways.contains(queued.get().getRunway()))
+            return Optional.empty();
+        Runway r = queued.get().getRunway();
+        r.getLock().lock();
+        try {
+            // It may have departed (or moved) before we took the lock
+            return airport.getFlightIndex().get(flightId).filter(q -> q == queued.get()).map(r::getQueued);
+        } finally { r.getLock().unlock(); }
     }
 
     @Override
     public ReorderStatus reorderRunways() throws RemoteException {
-        final List<Flight> flights = new ArrayList<>();
-        final List<Flight> assigned = new ArrayList<>();
-        writeLock.lock();
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.REORDER_RUNWAYS);
         try {
-            List<Runway> runways = airport.getRunways();
-            while (runways.stream().anyMatch(Runway::notEmpty)) {
-                runways.stream().map(Runway::removeFlight).filter(Optional::isPresent).map(Optional::get).forEach(flights::add);
-            }
-            flights.forEach(f -> runways.stream().filter(Runway::isOpen)
-                    .filter(r -> f.getMinType().value.compareTo(r.getType().value) <= 0).min(Comparator.naturalOrder())
-                    .flatMap(r -> r.addFlightToQueue(f)).ifPresent(assigned::add));
-        } finally { writeLock.unlock(); }
+            final List<Flight> assigned = new ArrayList<>();
+            final List<Flight> failed;
+            // The write lock excludes every other operation, so there is no need to take the runway locks
+            long position;
+            writeLock.lock();
+            try {
+                failed = airport.reorderRunways(assigned);
+                position = journal.reordered();
+            } finally { writeLock.unlock(); }
+            persisted(position);
+
+            // Notifying the assignments
+            event.setFlightsMoved(assigned.size());
+            event.setFlightsNotified(notify(assigned.stream().map(f -> event(FlightEvent.Type.ASSIGNED, f)).collect(Collectors.toList())));
+
+            return new ReorderStatus(failed, assigned.size());
+        } finally { metrics.record(Operation.REORDER_RUNWAYS, start, event); }
+    }
+
+    @Override
+    public ReorderStatus reorderRunway(String name) throws RemoteException, RunwayNotFoundException {
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.REORDER_RUNWAY);
+        event.setRunway(name);
+        try {
+            final List<Flight> assigned = new ArrayList<>();
+            final List<Flight> stayed;
+            final List<Flight> updated = new ArrayList<>();
+            long position;
+            // Other runways get flights, so this needs the airport for itself too
+            writeLock.lock();
+            try {
+                Runway r = airport.getRunway(name).orElseThrow(RunwayNotFoundException::new);
+                stayed = airport.reorderRunway(r, assigned);
+                position = journal.runwayReordered(name);
+                // Flights that stayed may have moved forward in the queue
+                if (!stayed.isEmpty()) {
+                    Set<Runway> runway = Collections.singleton(r);
+                    for (int flightId : trackers.getTrackedFlights())
+                        trackedPosition(flightId, runway).ifPresent(updated::add);
+                }
+            } finally { writeLock.unlock(); }
+            persisted(position);
 
-        // Notifying the assignments
-        assigned.forEach(f -> {
-            notifyRunwayAssigned(f.getFlightId(), f.getDestCode(), f.getAssignedRunway(), f.getAhead());
-        });
+            List<FlightEvent> events = new ArrayList<>(assigned.size() + updated.size());
+            assigned.forEach(f -> events.add(event(FlightEvent.Type.ASSIGNED, f)));
+            updated.forEach(f -> events.add(event(FlightEvent.Type.UPDATED, f)));
+            event.setFlightsMoved(assigned.size());
+            event.setFlightsNotified(notify(events));
 
-        flights.removeAll(assigned);
-        return new ReorderStatus(flights, assigned.size());
+            return new ReorderStatus(stayed, assigned.size());
+        } finally { metrics.record(Operation.REORDER_RUNWAY, start, event); }
     }
 
     @Override
     public List<Flight> getDepartures(String runway, String airline) throws RemoteException, QueryNotAllowedException {
-        if (runway != null && airline != null)
-            throw new QueryNotAllowedException();
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.GET_DEPARTURES);
+        event.setRunway(runway);
+        try {
+            if (runway != null && airline != null)
+                throw new QueryNotAllowedException();
+
+            // The departure log has its own lock, no need to take the airport one. The answer can be large, so it goes
+            // with the compact encoding
+            DepartureLog departures = airport.getDepartureLog();
+            if (runway != null)
+                return new FlightList(departures.getByRunway(runway));
+            if (airline != null)
+                return new FlightList(departures.getByAirline(airline));
+            return new FlightList(departures.getAll());
+        } finally { metrics.record(Operation.GET_DEPARTURES, start, event); }
+    }
+
+    @Override
+    public DeparturesPage getDepartures(String runway, String airline, String cursor, int pageSize) throws RemoteException, QueryNotAllowedException {
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.GET_DEPARTURES_PAGE);
+        event.setRunway(runway);
+        try {
+            if (runway != null && airline != null || pageSize <= 0)
+                throw new QueryNotAllowedException();
+
+            // The cursor is the position of the first flight of the page, the log is append only so positions never change
+            int from;
+            try {
+                from = cursor == null ? 0 : Integer.parseInt(cursor);
+            } catch (NumberFormatException e) {
+                throw new QueryNotAllowedException();
+            }
+            if (from < 0)
+                throw new QueryNotAllowedException();
+
+            // Pages are capped so a single response can't take too much memory. We ask for one more flight to know if there is a next page
+            int size = Math.min(pageSize, MAX_PAGE_SIZE);
+            List<Flight> flights = airport.getDepartureLog().getPage(runway, airline, from, size + 1);
+            if (flights.size() <= size)
+                return new DeparturesPage(flights, null);
+            return new DeparturesPage(flights.subList(0, size), Integer.toString(from + size));
+        } finally { metrics.record(Operation.GET_DEPARTURES_PAGE, start, event); }
+    }
 
-        if (runway != null) {
+    @Override
+    public void requestRunway(int flightId, String destCode, String airline, RunwayType minType) throws RemoteException, RunwayNotAssignedException {
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.REQUEST_RUNWAY);
+        try {
+            final Flight f = new Flight(flightId, destCode, airline, minType);
+            Flight assigned = null;
+            long position = 0;
             readLock.lock();
             try {
-                Optional<Runway> r = airport.getRunway(runway);
-                if (!r.isPresent())
-                    return new ArrayList<>();
-                return r.get().getDeparted(null);
+                final RunwaySelector selector = airport.getSelector();
+                while (assigned == null) {
+                    Runway r = selector.best(minType, true);
+                    if (r == null)
+                        throw new RunwayNotAssignedException();
+                    r.getLock().lock();
+                    try {
+                        // Other runways may have changed since we chose this one, so it is only used if it is still the best one
+                        if (selector.best(minType, true) == r) {
+                            assigned = r.addFlightToQueue(f).orElseThrow(RunwayNotAssignedException::new);
+                            position = journal.flightQueued(r.getName(), f);
+                        }
+                    } finally { r.getLock().unlock(); }
+                }
             } finally { readLock.unlock(); }
-        }
+            persisted(position);
 
-        readLock.lock();
-        try {
-            return airport.getRunways().stream().map(r -> r.getDeparted(airline)).flatMap(Collection::stream).collect(Collectors.toList());
-        } finally { readLock.unlock(); }
+            event.setRunway(assigned.getAssignedRunway());
+            event.setFlightsMoved(1);
+            event.setFlightsNotified(notify(Collections.singletonList(event(FlightEvent.Type.ASSIGNED, assigned))));
+        } finally { metrics.record(Operation.REQUEST_RUNWAY, start, event); }
     }
 
     @Override
-    public void requestRunway(int flightId, String destCode, String airline, RunwayType minType) throws RemoteException, RunwayNotAssignedException {
-        final Flight f = new Flight(flightId, destCode, airline, minType);
-        Flight assigned;
-        writeLock.lock();
+    public List<Flight> requestRunways(List<Flight> flights) throws RemoteException {
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.REQUEST_RUNWAYS);
         try {
-            assigned = airport.getRunways().stream().filter(r -> f.getMinType().value.compareTo(r.getType().value) <= 0)
-                    .min(Comparator.naturalOrder()).orElseThrow(RunwayNotAssignedException::new).addFlightToQueue(f).orElseThrow(RunwayNotAssignedException::new);
-        } finally { writeLock.unlock(); }
-
-        notifyRunwayAssigned(assigned.getFlightId(), assigned.getDestCode(), assigned.getAssignedRunway(), assigned.getAhead());
+            final List<Flight> results = new ArrayList<>(flights.size());
+            long position = 0;
+            // A single exclusive section for the whole batch, so no runway locks are needed
+            writeLock.lock();
+            try {
+                for (Flight requested : flights) {
+                    final Flight f = new Flight(requested.getFlightId(), requested.getDestCode(), requested.getAirline(), requested.getMinType());
+                    Runway r = airport.getSelector().best(f.getMinType(), true);
+                    Flight result = r == null ? f : r.addFlightToQueue(f).orElse(f);
+                    if (result.isAssigned())
+                        position = journal.flightQueued(r.getName(), f);
+                    results.add(result);
+                }
+            } finally { writeLock.unlock(); }
+            persisted(position);
+
+            List<FlightEvent> events = results.stream().filter(Flight::isAssigned).map(f -> event(FlightEvent.Type.ASSIGNED, f)).collect(Collectors.toList());
+            event.setFlightsMoved(events.size());
+            event.setFlightsNotified(notify(events));
+            return new FlightList(results);
+        } finally { metrics.record(Operation.REQUEST_RUNWAYS, start, event); }
     }
 
     @Override
     public void register(int flightId, String airline, FlightEventCallback callback) throws RemoteException, TrackingNotAllowedException, FlightNotFoundException {
-        // We try with readLock first to avoid blocking other reads
-        readLock.lock();
+        register(flightId, airline, callback == null ? null : Subscriber.of(callback));
+    }
+
+    @Override
+    public void registerBatched(int flightId, String airline, FlightEventBatchCallback callback) throws RemoteException, TrackingNotAllowedException, FlightNotFoundException {
+        register(flightId, airline, callback == null ? null : Subscriber.of(callback));
+    }
+
+    private void register(int flightId, String airline, Subscriber subscriber) throws TrackingNotAllowedException, FlightNotFoundException {
+        long start = System.nanoTime();
+        OperationEvent event = metrics.begin(Operation.REGISTER);
         try {
-            Flight f = airport.getRunways().stream().map(r -> r.findFlight(flightId))
-                    .filter(Optional::isPresent).findFirst().orElseThrow(FlightNotFoundException::new).orElseThrow(FlightNotFoundException::new);
-            if (!f.getAirline().equals(airline))
-                throw new TrackingNotAllowedException();
-        } finally { readLock.unlock(); }
+            readLock.lock();
+            try {
+                while (true) {
+                    QueuedFlight queued = airport.getFlightIndex().get(flightId).orElseThrow(FlightNotFoundException::new);
+                    Runway r = queued.getRunway();
+                    event.setRunway(r.getName());
+                    r.getLock().lock();
+                    try {
+                        // The flight may have departed while we waited for the runway lock
+                        if (airport.getFlightIndex().get(flightId).filter(q -> q == queued).isPresent()) {
+                            // Airlines are compared by symbol, an airline that was never seen has none
+                            if (airline == null || r.getAirline(queued) != airport.getSymbols().find(airline))
+                                throw new TrackingNotAllowedException();
+                            if (subscriber == null)
+                                return;
+                            // We still hold the runway lock, so the flight cannot depart before the tracker is added
+                            trackers.add(flightId, subscriber);
+                            return;
+                        }
+                    } finally { r.getLock().unlock(); }
+                }
+            } finally { readLock.unlock(); }
+        } finally { metrics.record(Operation.REGISTER, start, event); }
+    }
 
-        if (callback == null)
+    // Waits for the journal records of the operation to be durable (should be called without any lock) and takes a snapshot
+    // if enough records were written since the last one
+    private void persisted(long position) throws RemoteException {
+        try {
+            journal.sync(position);
+        } catch (IOException e) {
+            throw new RemoteException("Could not persist the operation", e);
+        }
+        if (store == null || !store.snapshotDue())
             return;
         writeLock.lock();
         try {
-            // We must make sure flight has not departed while we waited for the lock
-            if (airport.getRunways().stream().noneMatch(r -> r.hasFlight(flightId)))
-                throw new FlightNotFoundException();
-            List<FlightEventCallback> callbacks = trackers.computeIfAbsent(flightId, k -> new ArrayList<>());
-            callbacks.add(callback);
+            // Someone else may have taken it while we waited for the lock
+            if (store.snapshotDue())
+                store.snapshot(airport);
+        } catch (IOException e) {
+            // The journal still has every change, so we can keep going
+            logger.error("Could not write snapshot: " + e);
         } finally { writeLock.unlock(); }
     }
 
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Publishes the metrics, the state of the airport and the notification counters as MBeans
+    public void registerMBeans(MBeanServer server) throws JMException {
+        metrics.register(server, new AirportStats(), dispatcher);
+    }
+
+    private class AirportStats implements AirportMXBean {
+        @Override
+        public int getRunways() {
+            readLock.lock();
+            try {
+                return airport.getRunways().size();
+            } finally { readLock.unlock(); }
+        }
+
+        // Queue sizes are read without the runway locks, so they may be a moment apart from each other
+        @Override
+        public Map<String, Integer> getQueueDepths() {
+            Map<String, Integer> depths = new TreeMap<>();
+            readLock.lock();
+            try {
+                airport.getRunways().forEach(r -> depths.put(r.getName(), r.getQueueSize()));
+            } finally { readLock.unlock(); }
+            return depths;
+        }
+
+        @Override
+        public long getQueuedFlights() {
+            readLock.lock();
+            try {
+                return airport.getRunways().stream().mapToLong(Runway::getQueueSize).sum();
+            } finally { readLock.unlock(); }
+        }
+
+        @Override
+        public long getDepartures() {
+            return airport.getDepartureLog().size();
+        }
+    }
+
     // For testing only
     public Optional<Runway> getRunwayByName(String name) {
         return airport.getRunway(name);
     }
 
-    // Notification handlers
-    private void notifyRunwayAssigned(int flightId, String destCode, String runwayName, int ahead) {
-        // Notification part (TODO: make the calls in threads)
-        readLock.lock();
-        List<FlightEventCallback> toNotify;
-        try {
-            toNotify = trackers.getOrDefault(flightId, new ArrayList<>());
-        } finally { readLock.unlock(); }
-        for (FlightEventCallback c : toNotify) {
-            executor.submit(() -> {
-                try {
-                    c.flightAssigned(flightId, destCode, runwayName, ahead);
-                } catch (RemoteException ignored) {
+    // For testing only
+    public int getTrackedFlights() {
+        return trackers.size();
+    }
 
-                }
-            });
-        }
+    // Events of an operation, delivered in the background. Returns how many of them had a tracker
+    private int notify(List<FlightEvent> events) {
+        return events.isEmpty() ? 0 : dispatcher.publish(events, this::trackersOf);
     }
 
-    private void notifyFlightUpdated(int flightId, String destCode, String runwayName, int ahead) {
-        readLock.lock();
-        List<FlightEventCallback> toNotify;
-        try {
-            toNotify = trackers.getOrDefault(flightId, new ArrayList<>());
-        } finally { readLock.unlock(); }
-        for (FlightEventCallback c: toNotify) {
-            executor.submit(() -> {
-                try {
-                    c.flightUpdated(flightId, destCode, runwayName, ahead);
-                } catch (RemoteException ignored) {
+    private static FlightEvent event(FlightEvent.Type type, Flight f) {
+        return new FlightEvent(type, f.getFlightId(), f.getDestCode(), f.getAssignedRunway(), f.getAhead());
+    }
 
-                }
-            });
-        }
+    // The dispatcher gave up on this subscriber, so it stops tracking every flight
+    private void evicted(Subscriber subscriber) {
+        trackers.remove(subscriber);
     }
 
-    private void notifyFlightDeparted(int flightId, String destCode, String runwayName) {
-        readLock.lock();
-        List<FlightEventCallback> toNotify;
-        try {
-            toNotify = trackers.getOrDefault(flightId, new ArrayList<>());
-        } finally { readLock.unlock(); }
-        for (FlightEventCallback c: toNotify) {
-            executor.submit(() -> {
-                try {
-                    c.flightDeparted(flightId, destCode, runwayName);
-                } catch (RemoteException ignored) {
+    public NotificationDispatcher getDispatcher() {
+        return dispatcher;
+    }
 
-                }
-            });
-        }
+    // A departure is the last event of a flight, so its subscriptions end there
+    private List<Subscriber> trackersOf(FlightEvent event) {
+        if (event.getType() == FlightEvent.Type.DEPARTED)
+            return trackers.remove(event.getFlightId());
+        return trackers.get(event.getFlightId());
     }
 }
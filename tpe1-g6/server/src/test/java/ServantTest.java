@@ -1,16 +1,52 @@
+import ar.edu.itba.pod.api.callbacks.FlightEventBatchCallback;
 import ar.edu.itba.pod.api.callbacks.FlightEventCallback;
 import ar.edu.itba.pod.api.exceptions.*;
+import ar.edu.itba.pod.api.model.DeparturesPage;
 import ar.edu.itba.pod.api.model.Flight;
+import ar.edu.itba.pod.api.model.FlightEvent;
+import ar.edu.itba.pod.api.model.ReorderStatus;
 import ar.edu.itba.pod.api.model.RunwayType;
+import ar.edu.itba.pod.server.metrics.Operation;
+import ar.edu.itba.pod.server.model.Airport;
 import ar.edu.itba.pod.server.model.Runway;
+import ar.edu.itba.pod.server.persistence.AirportStore;
+import ar.edu.itba.pod.server.persistence.FsyncPolicy;
 import ar.edu.itba.pod.server.servants.Servant;
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ServantTest {
     private Servant servant;
@@ -39,6 +75,12 @@ public class ServantTest {
         servant.addRunway(runwayNameClosed, runwayCategoryClosed);
         servant.closeRunway(runwayNameClosed);
     }
+
+    @After
+    public void after() {
+        servant.close();
+    }
+
     @Test
     public void addRunway() throws RunwayAlreadyExistsException, RemoteException {
         servant.addRunway(runwayName2, runwayCategory);
@@ -108,6 +150,168 @@ public class ServantTest {
         Assert.assertFalse(servant.getRunwayByName(runwayName).get().hasFlight(flightId1));
     }
 
+    @Test
+    public void takeOffOrderWaitTimeAndAhead() throws RemoteException, RunwayNotAssignedException, RunwayNotFoundException,
+            InvalidRunwayOperationException, QueryNotAllowedException {
+        servant.requestRunway(flightId2, flightCode1, flightAirline1, flightMinCategory);
+        servant.requestRunway(3, flightCode1, flightAirline1, flightMinCategory);
+        Runway runway = servant.getRunwayByName(runwayName).get();
+        Assert.assertEquals(2, runway.findFlight(3).get().getAhead());
+
+        servant.takeOffOrder();
+        servant.closeRunway(runwayName);
+        servant.takeOffOrder();
+        servant.openRunway(runwayName);
+        servant.takeOffOrder();
+
+        List<Flight> departures = servant.getDepartures(runwayName, null);
+        Assert.assertEquals(2, departures.size());
+        Assert.assertEquals(1, departures.get(0).getWaitTime());
+        Assert.assertEquals(3, departures.get(1).getWaitTime());
+
+        Flight queued = runway.findFlight(3).get();
+        Assert.assertEquals(0, queued.getAhead());
+        Assert.assertEquals(3, queued.getWaitTime());
+    }
+
+    @Test
+    public void takeOffOrderRounds() throws Exception {
+        Servant oneByOne = new Servant();
+        for (Servant s : Arrays.asList(servant, oneByOne)) {
+            if (s == oneByOne) {
+                s.addRunway(runwayName, runwayCategory);
+                s.requestRunway(flightId1, flightCode1, flightAirline1, flightMinCategory);
+                s.addRunway(runwayNameClosed, runwayCategoryClosed);
+                s.closeRunway(runwayNameClosed);
+            }
+            s.addRunway(runwayName2, runwayCategory);
+            for (int i = 0; i < 10; i++)
+                s.requestRunway(10 + i, flightCode1, flightAirline1, RunwayType.A);
+        }
+        List<Integer> updates = Collections.synchronizedList(new ArrayList<>());
+        servant.registerBatched(19, flightAirline1, events -> events.forEach(e -> updates.add(e.getFlightsAhead())));
+
+        servant.takeOffOrder(3);
+        for (int i = 0; i < 3; i++)
+            oneByOne.takeOffOrder();
+        Assert.assertTrue(servant.awaitTermination());
+
+        Assert.assertEquals(oneByOne.getDepartures(null, null).stream().map(Flight::getFlightId).collect(Collectors.toList()),
+                servant.getDepartures(null, null).stream().map(Flight::getFlightId).collect(Collectors.toList()));
+        for (String name : Arrays.asList(runwayName, runwayName2, runwayNameClosed))
+            Assert.assertEquals(oneByOne.getRunwayByName(name).get().getQueued().stream().map(Flight::getWaitTime).collect(Collectors.toList()),
+                    servant.getRunwayByName(name).get().getQueued().stream().map(Flight::getWaitTime).collect(Collectors.toList()));
+        // Flight 19 is the 4th one in rName, it only gets its last position
+        Assert.assertEquals(Collections.singletonList(0), updates);
+    }
+
+    @Test
+    public void metricsAreExposedThroughJmx() throws Exception {
+        List<Integer> events = Collections.synchronizedList(new ArrayList<>());
+        servant.registerBatched(flightId1, flightAirline1, batch -> batch.forEach(e -> events.add(e.getFlightId())));
+        for (int i = 0; i < 5; i++)
+            servant.requestRunway(10 + i, flightCode1, flightAirline1, flightMinCategory);
+        servant.takeOffOrder();
+        Assert.assertTrue(servant.awaitTermination());
+
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        servant.registerMBeans(server);
+        // The one in before() too
+        Assert.assertEquals(6L, server.getAttribute(new ObjectName("ar.edu.itba.pod:type=Operation,name=requestRunway"), "Count"));
+        Assert.assertEquals(1L, servant.getMetrics().getLatency(Operation.TAKE_OFF_ORDER).getCount());
+        Assert.assertTrue(servant.getMetrics().getReadLockWait().getCount() >= 8);
+        Assert.assertEquals(servant.getMetrics().getReadLockWait().getCount(), servant.getMetrics().getReadLockHold().getCount());
+        Assert.assertEquals(2L, servant.getMetrics().getWriteLockHold().getCount());
+
+        ObjectName airport = new ObjectName("ar.edu.itba.pod:type=Airport");
+        Assert.assertEquals(1L, server.getAttribute(airport, "Departures"));
+        Assert.assertEquals(5L, server.getAttribute(airport, "QueuedFlights"));
+        ObjectName notifications = new ObjectName("ar.edu.itba.pod:type=Notifications");
+        Assert.assertEquals(1L, server.getAttribute(notifications, "DeliveredEvents"));
+        Assert.assertEquals(0L, server.getAttribute(notifications, "PendingEvents"));
+        Assert.assertEquals(Collections.singletonList(flightId1), events);
+    }
+
+    @Test
+    public void operationsAreFlightRecorderEvents() throws Exception {
+        servant.registerBatched(flightId1, flightAirline1, batch -> { });
+        servant.requestRunway(flightId2, flightCode1, flightAirline1, flightMinCategory);
+
+        Path file = Files.createTempFile("servant", ".jfr");
+        List<RecordedEvent> recorded;
+        try (Recording recording = new Recording()) {
+            recording.enable("ar.edu.itba.pod.Operation");
+            recording.enable("ar.edu.itba.pod.Callback");
+            recording.start();
+            servant.takeOffOrder();
+            Assert.assertTrue(servant.awaitTermination());
+            recording.stop();
+            recording.dump(file);
+            recorded = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.delete(file);
+        }
+
+        RecordedEvent takeOff = recorded.stream().filter(e -> e.getEventType().getName().equals("ar.edu.itba.pod.Operation")).findFirst().get();
+        Assert.assertEquals("takeOffOrder", takeOff.getString("operation"));
+        Assert.assertEquals(1, takeOff.getInt("flightsMoved"));
+        // Flight 1 departed, flight 2 moved ahead but nobody tracks it
+        Assert.assertEquals(1, takeOff.getInt("flightsNotified"));
+        RecordedEvent callback = recorded.stream().filter(e -> e.getEventType().getName().equals("ar.edu.itba.pod.Callback")).findFirst().get();
+        Assert.assertEquals(flightId1, callback.getInt("flightId"));
+        Assert.assertFalse(callback.getBoolean("failed"));
+    }
+
+    @Test
+    public void flightStringsAreInterned() throws Exception {
+        // Different instances, like the ones every RMI call brings
+        for (int i = 0; i < 10; i++)
+            servant.requestRunway(10 + i, new String(flightCode1), new String(flightAirline2), flightMinCategory);
+        for (int i = 0; i < 5; i++)
+            servant.takeOffOrder();
+
+        List<Flight> queued = servant.getRunwayByName(runwayName).get().getQueued();
+        List<Flight> departed = servant.getDepartures(null, flightAirline2);
+        Assert.assertEquals(6, queued.size());
+        Assert.assertEquals(4, departed.size());
+        for (Flight f : queued) {
+            Assert.assertSame(queued.get(0).getDestCode(), f.getDestCode());
+            Assert.assertSame(queued.get(0).getAirline(), f.getAirline());
+        }
+        Assert.assertSame(queued.get(0).getAirline(), departed.get(0).getAirline());
+        Assert.assertSame(queued.get(0).getAssignedRunway(), departed.get(0).getAssignedRunway());
+    }
+
+    @Test
+    public void queueWrapsAroundAndGrows() throws Exception {
+        // The queue starts with room for 16, so departures move its head and then it has to grow twice
+        for (int i = 0; i < 10; i++)
+            servant.requestRunway(10 + i, flightCode1, flightAirline1, flightMinCategory);
+        for (int i = 0; i < 7; i++)
+            servant.takeOffOrder();
+        for (int i = 0; i < 40; i++)
+            servant.requestRunway(20 + i, flightCode1, i % 2 == 0 ? flightAirline1 : flightAirline2, flightMinCategory);
+
+        Runway r = servant.getRunwayByName(runwayName).get();
+        List<Flight> queued = r.getQueued();
+        Assert.assertEquals(44, queued.size());
+        for (int i = 0; i < queued.size(); i++) {
+            Assert.assertEquals(16 + i, queued.get(i).getFlightId());
+            Assert.assertEquals(i, queued.get(i).getAhead());
+            Assert.assertEquals(i < 4 ? 7 : 0, queued.get(i).getWaitTime());
+        }
+        Assert.assertTrue(r.hasFlight(59));
+        Assert.assertEquals(43, r.findFlight(59).get().getAhead());
+        Assert.assertFalse(r.hasFlight(15));
+
+        servant.register(59, flightAirline2, null);
+        try {
+            servant.register(58, flightAirline2, null);
+            Assert.fail();
+        } catch (TrackingNotAllowedException expected) {
+        }
+    }
+
     @Test
     public void reorderRunways() throws RemoteException, RunwayNotAssignedException,
             RunwayAlreadyExistsException {
@@ -122,6 +326,94 @@ public class ServantTest {
         Assert.assertTrue(servant.getRunwayByName(runwayName2).get().notEmpty());
     }
 
+    @Test
+    public void reorderSingleRunway() throws Exception {
+        servant.addRunway(runwayName2, runwayCategory);
+        servant.addRunway("rE", RunwayType.E);
+        // E flights can only go to rE
+        servant.requestRunway(flightId2, flightCode1, flightAirline1, flightMinCategory);
+        servant.requestRunway(3, flightCode1, flightAirline1, RunwayType.E);
+        servant.requestRunway(4, flightCode1, flightAirline1, RunwayType.E);
+        Runway runwayE = servant.getRunwayByName("rE").get();
+        Assert.assertEquals(2, runwayE.getQueueSize());
+
+        // Nowhere else to go for E flights
+        ReorderStatus status = servant.reorderRunway("rE");
+        Assert.assertEquals(0, status.getAssigned());
+        Assert.assertEquals(2, status.getFailed().size());
+        Assert.assertEquals(Arrays.asList(3, 4), runwayE.getQueued().stream().map(Flight::getFlightId).collect(Collectors.toList()));
+
+        // Both flights of rName go to rName2, which is still better than rE, and rE is not touched
+        servant.requestRunway(5, flightCode1, flightAirline1, flightMinCategory);
+        status = servant.reorderRunway(runwayName);
+        Assert.assertEquals(2, status.getAssigned());
+        Assert.assertEquals(0, servant.getRunwayByName(runwayName).get().getQueueSize());
+        Assert.assertEquals(3, servant.getRunwayByName(runwayName2).get().getQueueSize());
+        Assert.assertEquals(2, runwayE.getQueueSize());
+    }
+
+    @Test(expected = RunwayNotFoundException.class)
+    public void reorderNotAddedRunway() throws RemoteException, RunwayNotFoundException {
+        servant.reorderRunway(runwayName2);
+    }
+
+    @Test
+    public void reorderOnClose() throws Exception {
+        servant.setReorderOnClose(true);
+        servant.addRunway(runwayName2, runwayCategory);
+        servant.closeRunway(runwayName);
+        Assert.assertEquals(0, servant.getRunwayByName(runwayName).get().getQueueSize());
+        Assert.assertTrue(servant.getRunwayByName(runwayName2).get().hasFlight(flightId1));
+    }
+
+    @Test
+    public void reorderRunwaysAssignsLikeBefore() {
+        // Same airport twice, one is reordered by the airport and the other one the way it was done before the selector
+        Airport airport = new Airport();
+        Airport expected = new Airport();
+        Random random = new Random(42);
+        RunwayType[] types = RunwayType.values();
+        for (int i = 0; i < 20; i++) {
+            RunwayType type = types[random.nextInt(types.length)];
+            boolean open = random.nextInt(4) != 0;
+            for (Airport a : Arrays.asList(airport, expected)) {
+                Runway r = new Runway("r" + i, type);
+                a.addRunway(r);
+                if (!open)
+                    r.closeRunway();
+            }
+        }
+        for (int i = 0; i < 2000; i++) {
+            Flight f = new Flight(i, flightCode1, flightAirline1, types[random.nextInt(types.length)]);
+            int runway = random.nextInt(20);
+            airport.getRunways().get(runway).addFlightToQueue(f);
+            expected.getRunways().get(runway).addFlightToQueue(f);
+        }
+
+        List<Flight> failed = airport.reorderRunways(new ArrayList<>());
+
+        List<Runway> runways = expected.getRunways();
+        List<Flight> flights = new ArrayList<>();
+        while (runways.stream().anyMatch(Runway::notEmpty))
+            runways.stream().map(Runway::removeFlight).filter(Optional::isPresent).map(Optional::get).forEach(flights::add);
+        List<Integer> expectedFailed = new ArrayList<>();
+        flights.forEach(f -> {
+            if (!runways.stream().filter(Runway::isOpen).filter(r -> f.getMinType().value.compareTo(r.getType().value) <= 0)
+                    .min(Comparator.naturalOrder()).flatMap(r -> r.addFlightToQueue(f)).isPresent())
+                expectedFailed.add(f.getFlightId());
+        });
+
+        Assert.assertEquals(expectedFailed, failed.stream().map(Flight::getFlightId).collect(Collectors.toList()));
+        for (int i = 0; i < runways.size(); i++) {
+            List<Flight> queued = airport.getRunways().get(i).getQueued();
+            List<Flight> expectedQueued = runways.get(i).getQueued();
+            Assert.assertEquals(expectedQueued.stream().map(Flight::getFlightId).collect(Collectors.toList()),
+                    queued.stream().map(Flight::getFlightId).collect(Collectors.toList()));
+            Assert.assertEquals(expectedQueued.stream().map(Flight::getAhead).collect(Collectors.toList()),
+                    queued.stream().map(Flight::getAhead).collect(Collectors.toList()));
+        }
+    }
+
     @Test
     public void getAllDepartures() throws RemoteException, QueryNotAllowedException {
         servant.takeOffOrder();
@@ -146,6 +438,113 @@ public class ServantTest {
         Assert.assertEquals(1, departures.size());
     }
 
+    @Test
+    public void getDeparturesInTakeOffOrder() throws RemoteException, QueryNotAllowedException, RunwayNotAssignedException,
+            RunwayAlreadyExistsException {
+        servant.addRunway(runwayName2, runwayCategory);
+        servant.requestRunway(flightId2, flightCode1, flightAirline2, flightMinCategory);
+        servant.requestRunway(3, flightCode1, flightAirline1, flightMinCategory);
+        servant.takeOffOrder();
+        servant.takeOffOrder();
+
+        List<Flight> departures = servant.getDepartures(null, null);
+        Assert.assertEquals(3, departures.size());
+        Assert.assertEquals(flightId1, departures.get(0).getFlightId());
+        Assert.assertEquals(flightId2, departures.get(1).getFlightId());
+        Assert.assertEquals(3, departures.get(2).getFlightId());
+
+        List<Flight> airlineDepartures = servant.getDepartures(null, flightAirline1);
+        Assert.assertEquals(2, airlineDepartures.size());
+        Assert.assertEquals(3, airlineDepartures.get(1).getFlightId());
+
+        Assert.assertEquals(1, servant.getDepartures(runwayName2, null).size());
+    }
+
+    @Test
+    public void getDeparturesPaged() throws RemoteException, QueryNotAllowedException, RunwayNotAssignedException {
+        for (int i = 0; i < 4; i++)
+            servant.requestRunway(10 + i, flightCode1, flightAirline1, flightMinCategory);
+        for (int i = 0; i < 5; i++)
+            servant.takeOffOrder();
+
+        DeparturesPage first = servant.getDepartures(null, flightAirline1, null, 2);
+        Assert.assertEquals(2, first.getFlights().size());
+        Assert.assertEquals(flightId1, first.getFlights().get(0).getFlightId());
+        DeparturesPage second = servant.getDepartures(null, flightAirline1, first.getNext().get(), 2);
+        Assert.assertEquals(11, second.getFlights().get(0).getFlightId());
+        DeparturesPage last = servant.getDepartures(null, flightAirline1, second.getNext().get(), 2);
+        Assert.assertEquals(1, last.getFlights().size());
+        Assert.assertFalse(last.getNext().isPresent());
+    }
+
+    @Test
+    public void getOldDepartures() throws RemoteException, QueryNotAllowedException, RunwayNotAssignedException {
+        for (int i = 0; i < 3000; i++) {
+            servant.requestRunway(10 + i, flightCode1, i % 2 == 0 ? flightAirline1 : flightAirline2, flightMinCategory);
+            servant.takeOffOrder();
+        }
+
+        List<Flight> departures = servant.getDepartures(null, null);
+        Assert.assertEquals(3000, departures.size());
+        Flight old = departures.get(1);
+        Assert.assertEquals(10, old.getFlightId());
+        Assert.assertEquals(flightCode1, old.getDestCode());
+        Assert.assertEquals(flightAirline1, old.getAirline());
+        Assert.assertEquals(runwayName, old.getAssignedRunway());
+        Assert.assertEquals(flightMinCategory, old.getMinType());
+        Assert.assertEquals(2, old.getWaitTime());
+        Assert.assertEquals(1499, servant.getDepartures(null, flightAirline2).size());
+        Assert.assertEquals(11, servant.getDepartures(null, flightAirline2).get(0).getFlightId());
+    }
+
+    @Test
+    public void departuresHaveCompactWireFormat() throws Exception {
+        servant.addRunway(runwayName2, runwayCategory);
+        for (int i = 0; i < 1000; i++)
+            servant.requestRunway(10 + i, flightCode1 + i % 7, i % 2 == 0 ? flightAirline1 : flightAirline2, RunwayType.values()[i % 4]);
+        for (int i = 0; i < 400; i++)
+            servant.takeOffOrder();
+
+        List<Flight> departures = servant.getDepartures(null, null);
+        byte[] compact = serialize(departures);
+        byte[] plain = serialize(new ArrayList<>(departures));
+        Assert.assertTrue(compact.length * 4 < plain.length);
+
+        @SuppressWarnings("unchecked")
+        List<Flight> read = (List<Flight>) new ObjectInputStream(new ByteArrayInputStream(compact)).readObject();
+        Assert.assertEquals(departures.size(), read.size());
+        for (int i = 0; i < departures.size(); i++) {
+            Flight expected = departures.get(i), actual = read.get(i);
+            Assert.assertEquals(expected.getFlightId(), actual.getFlightId());
+            Assert.assertEquals(expected.getDestCode(), actual.getDestCode());
+            Assert.assertEquals(expected.getAirline(), actual.getAirline());
+            Assert.assertEquals(expected.getMinType(), actual.getMinType());
+            Assert.assertEquals(expected.getWaitTime(), actual.getWaitTime());
+            Assert.assertEquals(expected.getAssignedRunway(), actual.getAssignedRunway());
+            Assert.assertEquals(expected.getAhead(), actual.getAhead());
+        }
+
+        // Reorder answers use the same encoding for the flights that could not move
+        ReorderStatus status = servant.reorderRunway(runwayName2);
+        ReorderStatus readStatus = (ReorderStatus) new ObjectInputStream(new ByteArrayInputStream(serialize(status))).readObject();
+        Assert.assertEquals(status.getAssigned(), readStatus.getAssigned());
+        Assert.assertEquals(status.getFailed().stream().map(Flight::getFlightId).collect(Collectors.toList()),
+                readStatus.getFailed().stream().map(Flight::getFlightId).collect(Collectors.toList()));
+    }
+
+    private static byte[] serialize(Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(o);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test(expected = QueryNotAllowedException.class)
+    public void getDeparturesInvalidCursor()throws RemoteException, QueryNotAllowedException {
+        servant.getDepartures(null, null, "not a cursor", 10);
+    }
+
     @Test(expected = QueryNotAllowedException.class)
     public void getAirlineDAndRunwayDepartures() throws RemoteException, QueryNotAllowedException {
         servant.takeOffOrder();
@@ -159,12 +558,45 @@ public class ServantTest {
         Assert.assertTrue(servant.getRunwayByName(runwayName).get().hasFlight(flightId2));
     }
 
+    @Test
+    public void requestRunwayPicksBestRunway() throws RemoteException, RunwayNotAssignedException, RunwayAlreadyExistsException {
+        servant.addRunway(runwayName2, RunwayType.E);
+
+        // Shortest queue first
+        servant.requestRunway(flightId2, flightCode1, flightAirline1, flightMinCategory);
+        Assert.assertTrue(servant.getRunwayByName(runwayName2).get().hasFlight(flightId2));
+
+        // Same queue size, lower category first
+        servant.requestRunway(3, flightCode1, flightAirline1, flightMinCategory);
+        Assert.assertTrue(servant.getRunwayByName(runwayName).get().hasFlight(3));
+
+        // Only the E runway can take it
+        servant.requestRunway(4, flightCode1, flightAirline1, RunwayType.E);
+        Assert.assertTrue(servant.getRunwayByName(runwayName2).get().hasFlight(4));
+    }
+
     @Test(expected = RunwayNotAssignedException.class)
     public void requestRunwayNoAvailable() throws RemoteException, RunwayNotAssignedException {
         Assert.assertFalse(servant.getRunwayByName(runwayName).get().hasFlight(flightId2));
         servant.requestRunway(flightId2, flightCode1, flightAirline1, RunwayType.F);
     }
 
+    @Test
+    public void requestRunways() throws RemoteException {
+        List<Flight> requested = new ArrayList<>();
+        requested.add(new Flight(flightId2, flightCode1, flightAirline1, flightMinCategory));
+        requested.add(new Flight(3, flightCode1, flightAirline1, RunwayType.F));
+
+        List<Flight> results = servant.requestRunways(requested);
+
+        Assert.assertEquals(2, results.size());
+        Assert.assertTrue(results.get(0).isAssigned());
+        Assert.assertEquals(runwayName, results.get(0).getAssignedRunway());
+        Assert.assertEquals(1, results.get(0).getAhead());
+        Assert.assertFalse(results.get(1).isAssigned());
+        Assert.assertTrue(servant.getRunwayByName(runwayName).get().hasFlight(flightId2));
+    }
+
     @Test
     public void register() throws TrackingNotAllowedException, RemoteException, FlightNotFoundException {
         FlightEventCallback callback = new FlightEventCallback() {
@@ -203,6 +635,19 @@ public class ServantTest {
         servant.register(flightId2, flightAirline1, callback);
     }
 
+    @Test(expected = FlightNotFoundException.class)
+    public void registerDepartedFlight() throws TrackingNotAllowedException, RemoteException, FlightNotFoundException,
+            RunwayNotAssignedException {
+        servant.requestRunway(flightId2, flightCode1, flightAirline1, flightMinCategory);
+        // Still found after being moved by a reorder
+        servant.reorderRunways();
+        servant.register(flightId1, flightAirline1, null);
+
+        servant.takeOffOrder();
+        servant.register(flightId2, flightAirline1, null);
+        servant.register(flightId1, flightAirline1, null);
+    }
+
     @Test(expected = TrackingNotAllowedException.class)
     public void registerWrongAirline() throws TrackingNotAllowedException, RemoteException, FlightNotFoundException {
         FlightEventCallback callback = new FlightEventCallback() {
@@ -221,4 +666,240 @@ public class ServantTest {
 
         servant.register(flightId1, flightAirline2, callback);
     }
+
+    @Test
+    public void concurrentRequestRunway() throws Exception {
+        servant.addRunway(runwayName2, runwayCategory);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final int flightId = 100 + i;
+            futures.add(pool.submit(() -> {
+                servant.requestRunway(flightId, flightCode1, flightAirline1, flightMinCategory);
+                return null;
+            }));
+        }
+        for (Future<?> f : futures)
+            f.get();
+        pool.shutdown();
+
+        // Both runways are eligible, so the flights must end up balanced between them (plus the one from before)
+        int queued1 = servant.getRunwayByName(runwayName).get().getQueueSize();
+        int queued2 = servant.getRunwayByName(runwayName2).get().getQueueSize();
+        Assert.assertEquals(1001, queued1 + queued2);
+        Assert.assertTrue(Math.abs(queued1 - queued2) <= 1);
+    }
+
+    @Test
+    public void trackerGetsEventsInOrder() throws Exception {
+        for (int i = 0; i < 50; i++)
+            servant.requestRunway(10 + i, flightCode1, flightAirline1, flightMinCategory);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        servant.register(59, flightAirline1, new FlightEventCallback() {
+            @Override
+            public void flightAssigned(int flightId, String destCode, String runway, int flightsAhead) {
+                events.add("assigned " + flightsAhead);
+            }
+
+            @Override
+            public void flightUpdated(int flightId, String destCode, String runway, int flightsAhead) {
+                events.add("updated " + flightsAhead);
+            }
+
+            @Override
+            public void flightDeparted(int flightId, String destCode, String runway) {
+                events.add("departed");
+            }
+        });
+        Assert.assertEquals(1, servant.getTrackedFlights());
+        for (int i = 0; i < 51; i++)
+            servant.takeOffOrder();
+        Assert.assertTrue(servant.awaitTermination());
+        // Once departed the flight is not tracked anymore
+        Assert.assertEquals(0, servant.getTrackedFlights());
+
+        // Updates may be coalesced, but never delivered out of order
+        Assert.assertEquals("departed", events.get(events.size() - 1));
+        int last = Integer.MAX_VALUE;
+        for (String e : events.subList(0, events.size() - 1)) {
+            int ahead = Integer.parseInt(e.substring("updated ".length()));
+            Assert.assertTrue(ahead < last);
+            last = ahead;
+        }
+        Assert.assertEquals(0, last);
+    }
+
+    @Test
+    public void batchTrackerGetsOneCallPerOperation() throws Exception {
+        servant.requestRunway(flightId2, flightCode1, flightAirline1, flightMinCategory);
+        servant.requestRunway(3, flightCode1, flightAirline1, flightMinCategory);
+        List<List<FlightEvent>> calls = Collections.synchronizedList(new ArrayList<>());
+        FlightEventBatchCallback callback = calls::add;
+        servant.registerBatched(flightId2, flightAirline1, callback);
+        servant.registerBatched(3, flightAirline1, callback);
+
+        servant.takeOffOrder();
+        Assert.assertTrue(servant.awaitTermination());
+
+        Assert.assertEquals(1, calls.size());
+        List<FlightEvent> events = calls.get(0);
+        Assert.assertEquals(2, events.size());
+        Assert.assertEquals(FlightEvent.Type.UPDATED, events.get(0).getType());
+        Assert.assertEquals(flightId2, events.get(0).getFlightId());
+        Assert.assertEquals(0, events.get(0).getFlightsAhead());
+        Assert.assertEquals(3, events.get(1).getFlightId());
+        Assert.assertEquals(1, events.get(1).getFlightsAhead());
+    }
+
+    @Test
+    public void trackerKeepsGettingEventsAfterRuntimeException() throws Exception {
+        for (int i = 0; i < 4; i++)
+            servant.requestRunway(10 + i, flightCode1, flightAirline1, flightMinCategory);
+        CountDownLatch firstCall = new CountDownLatch(1);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        servant.registerBatched(13, flightAirline1, events -> {
+            if (firstCall.getCount() > 0) {
+                firstCall.countDown();
+                throw new IllegalStateException("Bug in the tracker");
+            }
+            events.forEach(e -> received.add(e.getFlightsAhead()));
+        });
+
+        servant.takeOffOrder();
+        Assert.assertTrue(firstCall.await(10, TimeUnit.SECONDS));
+        servant.takeOffOrder();
+        Assert.assertTrue(servant.awaitTermination());
+
+        Assert.assertEquals(Collections.singletonList(2), received);
+        Assert.assertEquals(1, servant.getDispatcher().getFailedCalls());
+        Assert.assertEquals(0, servant.getDispatcher().getEvictedSubscribers());
+    }
+
+    @Test
+    public void failingTrackerIsEvicted() throws Exception {
+        for (int i = 0; i < 20; i++)
+            servant.requestRunway(10 + i, flightCode1, flightAirline1, flightMinCategory);
+        List<List<FlightEvent>> calls = Collections.synchronizedList(new ArrayList<>());
+        FlightEventBatchCallback callback = events -> {
+            calls.add(events);
+            throw new RemoteException("Tracker is gone");
+        };
+        servant.registerBatched(29, flightAirline1, callback);
+
+        // Each take off is a failed call once the previous one was made, after the third one the tracker is not called anymore
+        for (int i = 0; i < 20; i++) {
+            servant.takeOffOrder();
+            int expected = Math.min(i + 1, 3);
+            awaitUntil(() -> calls.size() >= expected);
+        }
+        Assert.assertTrue(servant.awaitTermination());
+
+        Assert.assertEquals(3, calls.size());
+        Assert.assertEquals(3, servant.getDispatcher().getFailedCalls());
+        Assert.assertEquals(1, servant.getDispatcher().getEvictedSubscribers());
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue("Timed out waiting", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void durableServantRecovers() throws Exception {
+        Path directory = Files.createTempDirectory("tpe1-g6");
+        // Snapshot every 3 records, so recovery goes through a snapshot and a journal
+        AirportStore store = new AirportStore(directory, FsyncPolicy.ALWAYS, 0, 3);
+        Servant durable = new Servant(store);
+        durable.addRunway(runwayName, runwayCategory);
+        durable.addRunway(runwayNameClosed, runwayCategory);
+        durable.requestRunway(flightId1, flightCode1, flightAirline1, flightMinCategory);
+        durable.requestRunway(flightId2, flightCode1, flightAirline1, flightMinCategory);
+        durable.requestRunway(3, flightCode1, flightAirline1, flightMinCategory);
+        durable.closeRunway(runwayNameClosed);
+        durable.takeOffOrder();
+        durable.reorderRunways();
+        store.close();
+
+        Servant recovered = new Servant(new AirportStore(directory, FsyncPolicy.ALWAYS, 0, 3));
+        Assert.assertFalse(recovered.isOpen(runwayNameClosed));
+        List<Flight> departures = recovered.getDepartures(null, null);
+        Assert.assertEquals(1, departures.size());
+        Assert.assertEquals(flightId1, departures.get(0).getFlightId());
+        Runway runway = recovered.getRunwayByName(runwayName).get();
+        Assert.assertEquals(2, runway.getQueueSize());
+        Assert.assertEquals(1, runway.findFlight(3).get().getWaitTime());
+        Assert.assertEquals(1, runway.findFlight(flightId2).get().getAhead());
+    }
+
+    @Test
+    public void corruptedJournalLengthIsATornRecord() throws Exception {
+        Path directory = Files.createTempDirectory("tpe1-g6");
+        AirportStore store = new AirportStore(directory, FsyncPolicy.ALWAYS, 0, 1000);
+        Servant durable = new Servant(store);
+        durable.addRunway(runwayName, runwayCategory);
+        durable.requestRunway(flightId1, flightCode1, flightAirline1, flightMinCategory);
+        store.close();
+
+        // A length far bigger than the file, as if garbage was left at the end
+        Path journal;
+        try (Stream<Path> files = Files.list(directory)) {
+            journal = files.filter(f -> f.getFileName().toString().startsWith("journal-")).max(Comparator.naturalOrder()).get();
+        }
+        Files.write(journal, new byte[]{0x7f, -1, -1, -1, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        Servant recovered = new Servant(new AirportStore(directory, FsyncPolicy.ALWAYS, 0, 1000));
+        Assert.assertEquals(1, recovered.getRunwayByName(runwayName).get().getQueueSize());
+    }
+
+    @Test
+    public void duplicatedIdIsStillTrackedAfterTheFirstDeparts() throws Exception {
+        servant.requestRunway(flightId2, flightCode1, flightAirline1, flightMinCategory);
+        servant.requestRunway(flightId2, flightCode1, flightAirline1, flightMinCategory);
+        servant.takeOffOrder();
+        servant.takeOffOrder();
+
+        // The second one is still found, now first in the queue
+        servant.register(flightId2, flightAirline1, null);
+        Assert.assertEquals(0, servant.getRunwayByName(runwayName).get().findFlight(flightId2).get().getAhead());
+    }
+
+    @Test
+    public void recentDeparturesAreCopies() throws Exception {
+        servant.takeOffOrder();
+        Flight departed = servant.getDepartures(null, null).get(0);
+        int waitTime = departed.getWaitTime();
+        departed.increaseWaitTime(10);
+
+        Assert.assertEquals(waitTime, servant.getDepartures(null, null).get(0).getWaitTime());
+    }
+
+    @Test
+    public void departuresByAirlineSpanSeveralIndexChunks() throws Exception {
+        // Past the hot tail and more than one chunk of positions for each airline
+        for (int i = 0; i < 3000; i++)
+            servant.requestRunway(10 + i, flightCode1, i % 3 == 0 ? flightAirline2 : flightAirline1, flightMinCategory);
+        for (int i = 0; i < 3001; i++)
+            servant.takeOffOrder();
+
+        List<Flight> departures = servant.getDepartures(null, flightAirline2);
+        Assert.assertEquals(1000, departures.size());
+        for (int i = 0; i < departures.size(); i++)
+            Assert.assertEquals(10 + 3 * i, departures.get(i).getFlightId());
+        Assert.assertEquals(2001, servant.getDepartures(null, flightAirline1).size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedServantHasNoDepartures() throws Exception {
+        servant.takeOffOrder();
+        servant.close();
+        servant.getDepartures(null, null);
+    }
+
+    @Test(expected = InvalidRunwayOperationException.class)
+    public void takeOffOrderRejectsNonPositiveRounds() throws Exception {
+        servant.takeOffOrder(-1);
+    }
 }